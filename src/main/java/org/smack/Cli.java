@@ -7,12 +7,30 @@
  */
 package org.smack;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.Writer;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
 
 import org.smack.application.CliApplication;
 import org.smack.application.CliApplication.Named;
+import org.smack.util.Duration;
 import org.smack.util.StringUtil;
 import org.smack.util.xml.XmlUtil;
 
@@ -24,6 +42,14 @@ import org.smack.util.xml.XmlUtil;
 @Named( description="A collection of cli utilities based on Smack." )
 public final class Cli extends CliApplication
 {
+    @Property( name = "threads", shortDescription =
+            "The number of worker threads used by xsl-batch." )
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    @Property( name = "extension", shortDescription =
+            "The file extension of the results written by xsl-batch." )
+    public String extension = "out";
+
     private Cli()
     {
     }
@@ -34,7 +60,12 @@ public final class Cli extends CliApplication
             @Named( value="stylesheet" ) File stylesheet,
             @Named( value="xml-file") File xml ) throws Exception
     {
-        out( "%s\n", XmlUtil.transform( stylesheet, xml ) );
+        XmlUtil.transform(
+                stylesheet,
+                xml,
+                Collections.emptyMap(),
+                System.out );
+        out( "\n" );
     }
 
     @Command( shortDescription =
@@ -47,11 +78,250 @@ public final class Cli extends CliApplication
             @Named( value="target-file") String target
             ) throws Exception
     {
-        try ( Writer w = new FileWriter( target ) )
+        try ( OutputStream os =
+                new BufferedOutputStream( new FileOutputStream( target ) ) )
+        {
+            XmlUtil.transform(
+                    stylesheet,
+                    xml,
+                    Collections.emptyMap(),
+                    os );
+            os.write( StringUtil.EOL.getBytes() );
+        }
+    }
+
+    @Command( name = "xsl-batch", shortDescription =
+            "Transforms the xml files directly in a directory or the files "
+            + "matching a glob pattern like 'data/**.xml' using stylesheet.  "
+            + "Writes each result next to its input." )
+    public void xslBatch(
+            @Named( value="stylesheet" ) File stylesheet,
+            @Named( value="files" ) String files ) throws Exception
+    {
+        xslBatch( stylesheet, files, null );
+    }
+
+    @Command( name = "xsl-batch", shortDescription =
+            "Transforms the xml files directly in a directory or the files "
+            + "matching a glob pattern like 'data/**.xml' using stylesheet.  "
+            + "Writes the results to target-dir." )
+    public void xslBatch(
+            @Named( value="stylesheet" ) File stylesheet,
+            @Named( value="files" ) String files,
+            @Named( value="target-dir" ) String targetDir ) throws Exception
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException( "threads must be > 0" );
+
+        var templates =
+                XmlUtil.compile( stylesheet );
+        var base =
+                batchBase( files );
+        var inputs =
+                batchFiles( base, files );
+
+        var failed = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        var executor = Executors.newFixedThreadPool( threads );
+        try
         {
-            w.write( XmlUtil.transform( stylesheet, xml ) );
-            w.write( StringUtil.EOL );
+            for ( var c : inputs )
+            {
+                var target = batchTarget(
+                        base,
+                        c,
+                        targetDir == null ? null : Paths.get( targetDir ) );
+
+                executor.execute( () -> {
+                    try
+                    {
+                        long fileStart = System.currentTimeMillis();
+                        xslBatch( templates, c, target );
+                        out( "%s: %d ms%n",
+                                c,
+                                System.currentTimeMillis() - fileStart );
+                    }
+                    catch ( Exception e )
+                    {
+                        failed.incrementAndGet();
+                        err( "%s: %s%n", c, e.getMessage() );
+                    }
+                } );
+            }
         }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( Long.MAX_VALUE, TimeUnit.DAYS );
+        }
+
+        out( "Transformed %d files in %s.%n",
+                inputs.size() - failed.get(),
+                new Duration( System.currentTimeMillis() - start ) );
+
+        if ( failed.get() > 0 )
+            throw new Exception( String.format(
+                    "%d of %d transformations failed.",
+                    failed.get(),
+                    inputs.size() ) );
+    }
+
+    /**
+     * Transform a single file of a batch.
+     */
+    private static void xslBatch( Templates templates, Path input, Path target )
+        throws Exception
+    {
+        if ( target.equals( input ) )
+            throw new IllegalArgumentException( "Target is input." );
+
+        if ( target.getParent() != null )
+            Files.createDirectories( target.getParent() );
+
+        try ( OutputStream os =
+                new BufferedOutputStream( Files.newOutputStream( target ) ) )
+        {
+            XmlUtil.transform(
+                    templates,
+                    input.toFile(),
+                    Collections.emptyMap(),
+                    new StreamResult( os ) );
+        }
+        catch ( Exception e )
+        {
+            // Do not leave partial results.
+            Files.deleteIfExists( target );
+            throw e;
+        }
+    }
+
+    /**
+     * Characters that make a glob pattern element.
+     */
+    private static final Pattern GLOB_CHARACTERS =
+            Pattern.compile( "[*?\\[{]" );
+
+    /**
+     * Check if a batch argument names a directory.
+     */
+    private static boolean isBatchDirectory( String files )
+    {
+        try
+        {
+            return Files.isDirectory( Paths.get( files ) );
+        }
+        catch ( InvalidPathException e )
+        {
+            // Glob patterns are no valid paths on all platforms.
+            return false;
+        }
+    }
+
+    /**
+     * Get a glob pattern using '/' as separator.  The platform separator
+     * is replaced since '\' is the escape character in glob patterns.
+     */
+    private static String batchGlob( String files )
+    {
+        return files.replace( File.separatorChar, '/' );
+    }
+
+    /**
+     * Get the index of the first element of a glob pattern holding pattern
+     * characters.  The last element is always part of the pattern.
+     */
+    private static int batchPatternStart( String glob )
+    {
+        int result = 0;
+
+        for ( int next ; (next = glob.indexOf( '/', result )) >= 0 ; result = next + 1 )
+        {
+            if ( GLOB_CHARACTERS.matcher( glob.substring( result, next ) ).find() )
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the directory holding the files of a batch.  This is the passed
+     * name if it is a directory, otherwise the leading part of the glob
+     * pattern that holds no pattern characters.
+     */
+    static Path batchBase( String files )
+    {
+        if ( isBatchDirectory( files ) )
+            return Paths.get( files );
+
+        var glob = batchGlob( files );
+
+        return Paths.get( glob.substring( 0, batchPatternStart( glob ) ) );
+    }
+
+    /**
+     * Get the files of a batch.  A directory selects the xml files it
+     * directly contains.  A glob pattern is matched against the paths
+     * relative to the base, '**' descends into subdirectories.
+     */
+    static List<Path> batchFiles( Path base, String files )
+        throws IOException
+    {
+        if ( isBatchDirectory( files ) )
+        {
+            var matcher =
+                    FileSystems.getDefault().getPathMatcher( "glob:*.xml" );
+
+            try ( var stream = Files.list( base ) )
+            {
+                return stream
+                        .filter( Files::isRegularFile )
+                        .filter( c -> matcher.matches( c.getFileName() ) )
+                        .sorted()
+                        .collect( Collectors.toList() );
+            }
+        }
+
+        var glob = batchGlob( files );
+        var pattern = glob.substring( batchPatternStart( glob ) );
+        var matcher =
+                FileSystems.getDefault().getPathMatcher( "glob:" + pattern );
+
+        // Without '**' the pattern matches only paths of its own depth.
+        int depth = pattern.contains( "**" ) ?
+                Integer.MAX_VALUE :
+                pattern.split( "/" ).length;
+
+        try ( var stream = Files.walk( base, depth ) )
+        {
+            return stream
+                    .filter( Files::isRegularFile )
+                    .filter( c -> matcher.matches( base.relativize( c ) ) )
+                    .sorted()
+                    .collect( Collectors.toList() );
+        }
+    }
+
+    /**
+     * Get the result file for a batch input.
+     *
+     * @param base The batch base directory.
+     * @param input The input file.
+     * @param targetDir The target directory.  If null, the result is
+     * placed next to the input.
+     */
+    Path batchTarget( Path base, Path input, Path targetDir )
+    {
+        var name = input.getFileName().toString();
+        int dot = name.lastIndexOf( '.' );
+        if ( dot > 0 )
+            name = name.substring( 0, dot );
+        name = name + "." + extension;
+
+        if ( targetDir == null )
+            return input.resolveSibling( name );
+
+        return targetDir.resolve( base.relativize( input ) ).resolveSibling( name );
     }
 
     public static void main( String[] argv )
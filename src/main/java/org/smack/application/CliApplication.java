@@ -4,16 +4,22 @@
  */
 package org.smack.application;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -379,21 +385,109 @@ abstract public class CliApplication
         {
             cl.get().launchInstance( argv );
         }
+        catch (Exception e)
+        {
+            processLaunchException( e );
+        }
+    }
+
+    /**
+     * Start a session on a single console command instance.  Each line read
+     * from the passed reader is split into its arguments using
+     * {@link StringUtil#splitQuoted(String)} and dispatched as if it were
+     * passed as a command line to {@link #launch(Supplier, String[])}.
+     * Empty lines and lines starting with '#' are ignored.
+     * <p>
+     * The instance and its command and property tables are created only
+     * once. Properties set on a line keep their value for the following
+     * lines. A failing line does not terminate the session.
+     * </p>
+     *
+     * @param cl The implementation class of the console command.
+     * @param script The source of the command lines, for example a reader on
+     * {@code System.in} or on a script file.
+     * @throws IOException If reading the script failed.
+     */
+    static public void launchSession( Class<? extends CliApplication> cl, Reader script )
+            throws IOException
+    {
+        launchSession(
+                new DefaultCtorReflection<>( cl ),
+                script );
+    }
+
+    /**
+     * Start a session on a single console command instance.  Each line read
+     * from the passed reader is split into its arguments using
+     * {@link StringUtil#splitQuoted(String)} and dispatched as if it were
+     * passed as a command line to {@link #launch(Supplier, String[])}.
+     * Empty lines and lines starting with '#' are ignored.
+     * <p>
+     * The instance and its command and property tables are created only
+     * once. Properties set on a line keep their value for the following
+     * lines. A failing line does not terminate the session.
+     * </p>
+     *
+     * @param cl A supplier for the console command instance.
+     * @param script The source of the command lines, for example a reader on
+     * {@code System.in} or on a script file.
+     * @throws IOException If reading the script failed.
+     */
+    static public void launchSession( Supplier<CliApplication> cl, Reader script )
+            throws IOException
+    {
+        final CliApplication instance;
+
+        try
+        {
+            instance = cl.get();
+        }
         catch (RuntimeException e)
         {
-            String msg = e.getMessage();
-            if (msg == null)
-                msg = e.getClass().getName();
+            processLaunchException( e );
+            return;
+        }
+
+        var reader = script instanceof BufferedReader ?
+                (BufferedReader)script :
+                new BufferedReader( script );
+
+        for ( var line = reader.readLine() ; line != null ; line = reader.readLine() )
+        {
+            line = line.trim();
+
+            if ( line.isEmpty() || line.startsWith( "#" ) )
+                continue;
+
+            try
+            {
+                instance.launchInstance( StringUtil.splitQuoted( line ) );
+            }
+            catch (Exception e)
+            {
+                processLaunchException( e );
+            }
+        }
+    }
 
+    /**
+     * Report an exception that terminated a launch.
+     *
+     * @param e The exception to report.
+     */
+    private static void processLaunchException( Exception e )
+    {
+        String msg = e.getMessage();
+        if (msg == null)
+            msg = e.getClass().getName();
+
+        if (e instanceof RuntimeException)
+        {
             LOG.log(Level.SEVERE, e.getMessage(), e);
             e.printStackTrace();
         }
-        catch (Exception e)
+        else
         {
-            String msg = e.getMessage();
-            if (msg == null)
-                msg = e.getClass().getName();
-
             LOG.log(Level.FINE, msg, e);
             System.err.println("Failed: " + msg);
         }
@@ -490,15 +584,8 @@ abstract public class CliApplication
                     if ( StringUtil.isEmpty( name ) )
                         name = c.getName();
 
-                    for ( Class<?> current : c.getParameterTypes() )
-                    {
-                        Objects.requireNonNull(
-                                _converters.getConverter( current ),
-                                "No mapper for " + current );
-                    }
-
                     Integer numberOfArgs =
-                            Integer.valueOf( c.getParameterTypes().length );
+                            Integer.valueOf( c.getParameterCount() );
 
                     var currentName =
                             new CaseIndependent( name );
@@ -837,6 +924,23 @@ abstract public class CliApplication
         private final Method _op;
         private final Command _commandAnnotation;
 
+        /**
+         * The parameter types of the operation.
+         */
+        private final Class<?>[] _parameterTypes;
+
+        /**
+         * The converters for the parameters, resolved once on creation.
+         */
+        private final Converter<String,?>[] _parameterConverters;
+
+        /**
+         * The operation bound to our instance, taking its arguments as an
+         * {@code Object[]}.
+         */
+        private final MethodHandle _invoker;
+
+        @SuppressWarnings("unchecked")
         CommandHolder( Method operation )
         {
             _op =
@@ -845,6 +949,55 @@ abstract public class CliApplication
                     Objects.requireNonNull(
                             _op.getAnnotation( Command.class ),
                             "@Command missing." );
+            _parameterTypes =
+                    _op.getParameterTypes();
+            _parameterConverters =
+                    (Converter<String,?>[])new Converter<?,?>[_parameterTypes.length];
+
+            for ( int i = 0 ; i < _parameterTypes.length ; i++ )
+            {
+                _parameterConverters[i] = Objects.requireNonNull(
+                        _converters.getConverter( _parameterTypes[i] ),
+                        "No mapper for " + _parameterTypes[i] );
+            }
+
+            _invoker =
+                    makeInvoker( _op );
+        }
+
+        /**
+         * Bind the passed operation to a method handle.  The access check
+         * is performed once here instead of on each invocation.
+         *
+         * @param operation The operation to bind.
+         * @return A handle of type {@code (Object[])void}.
+         */
+        private MethodHandle makeInvoker( Method operation )
+        {
+            try
+            {
+                operation.setAccessible( true );
+
+                var result =
+                        MethodHandles.lookup().unreflect( operation );
+
+                if ( ! Modifier.isStatic( operation.getModifiers() ) )
+                    result = result.bindTo( CliApplication.this );
+
+                return result
+                        .asSpreader(
+                                Object[].class,
+                                operation.getParameterCount() )
+                        .asType( MethodType.methodType(
+                                void.class,
+                                Object[].class ) );
+            }
+            catch ( Exception e )
+            {
+                throw new InternalError(
+                        "Implementation error. Cannot access " + operation,
+                        e );
+            }
         }
 
         String getName()
@@ -880,16 +1033,13 @@ abstract public class CliApplication
         {
             Object[] arguments =
                     new Object[argv.length];
-            Class<?>[] params =
-                    _op.getParameterTypes();
 
-            if ( argv.length != params.length )
+            if ( argv.length != _parameterTypes.length )
                 throw new AssertionError();
 
-            for (int j = 0; j < params.length; j++) try {
-                arguments[j] = transformArgument(
-                        params[j],
-                        argv[j] );
+            for (int j = 0; j < _parameterTypes.length; j++) try {
+                arguments[j] = _parameterConverters[j].convert(
+                        Objects.requireNonNull( argv[j] ) );
             } catch ( Exception e ) {
                 err("Parameter %s : ", argv[j]);
 
@@ -904,24 +1054,11 @@ abstract public class CliApplication
             }
 
             try {
-                final var self = CliApplication.this;
-
-                if ( ! _op.canAccess( self ) )
-                    _op.setAccessible( true );
-
-                _op.invoke(
-                        self,
-                        arguments);
+                _invoker.invokeExact( arguments );
             }
-            catch ( InvocationTargetException e )
+            catch ( Throwable e )
             {
-                processCommandException( _op.getName(), e.getCause() );
-            }
-            catch ( Exception e )
-            {
-                // A raw exception must come from our implementation,
-                // so we present a less user friendly stacktrace.
-                e.printStackTrace();
+                processCommandException( _op.getName(), e );
             }
             finally
             {
@@ -947,13 +1084,10 @@ abstract public class CliApplication
 
         private String[] getCommandParameterListExt()
         {
-            Class<?>[] parameterTypes =
-                    _op.getParameterTypes();
-
             // The old-style command parameter documentation has priority.
             if ( _commandAnnotation.argumentNames().length > 0 )
             {
-                if ( _commandAnnotation.argumentNames().length != parameterTypes.length )
+                if ( _commandAnnotation.argumentNames().length != _parameterTypes.length )
                     LOG.warning( "Command.argumentNames inconsistent with " + _op );
 
                 return _commandAnnotation.argumentNames();
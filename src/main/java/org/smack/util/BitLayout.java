@@ -0,0 +1,264 @@
+/* $Id$
+ *
+ * Common.
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.smack.util.IntegerUtil.Endianness;
+
+/**
+ * The layout of a bit-packed record.  A record consists of fields of
+ * arbitrary bit width at arbitrary bit offsets.  The layout is computed
+ * once and used to decode and encode any number of records without
+ * allocating per field.  The bit order is defined by the endianness, see
+ * {@link IntegerUtil#getBits(Endianness, byte[], long, int)}.
+ * <p>
+ * Instances are immutable and thread safe.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public final class BitLayout
+{
+    private final Endianness _endianness;
+    private final long[] _offsets;
+    private final int[] _widths;
+    private final long _bitLength;
+
+    /**
+     * Create a layout of consecutive fields, the first field starting at
+     * bit offset zero.
+     *
+     * @param endianness One of the constants {@link IntegerUtil#Big} or
+     * {@link IntegerUtil#Little}.
+     * @param widths The bit widths of the fields, each 1 to 64.
+     * @throws IllegalArgumentException If a width is out of range.
+     */
+    public BitLayout( Endianness endianness, int ... widths )
+    {
+        this( endianness, consecutive( widths ), widths );
+    }
+
+    /**
+     * Create a layout of fields at explicit offsets.  Fields may be
+     * unordered, overlap, or leave gaps.
+     *
+     * @param endianness One of the constants {@link IntegerUtil#Big} or
+     * {@link IntegerUtil#Little}.
+     * @param offsets The bit offsets of the fields in the record.
+     * @param widths The bit widths of the fields, each 1 to 64.
+     * @throws IllegalArgumentException If a width or offset is out of
+     * range or if the array lengths differ.
+     */
+    public BitLayout( Endianness endianness, long[] offsets, int[] widths )
+    {
+        if ( offsets.length != widths.length )
+            throw new IllegalArgumentException( String.format(
+                    "%d offsets but %d widths.",
+                    offsets.length,
+                    widths.length ) );
+
+        long bitLength = 0;
+
+        for ( int i = 0 ; i < widths.length ; i++ )
+        {
+            if ( widths[i] < 1 || widths[i] > Long.SIZE )
+                throw new IllegalArgumentException( String.format(
+                        "Field %d: width not in [1..%d]: %d.",
+                        i,
+                        Long.SIZE,
+                        widths[i] ) );
+            if ( offsets[i] < 0 )
+                throw new IllegalArgumentException( String.format(
+                        "Field %d: negative offset %d.",
+                        i,
+                        offsets[i] ) );
+
+            bitLength = Math.max( bitLength, offsets[i] + widths[i] );
+        }
+
+        _endianness = endianness;
+        _offsets = offsets.clone();
+        _widths = widths.clone();
+        _bitLength = bitLength;
+    }
+
+    private static long[] consecutive( int[] widths )
+    {
+        long[] result = new long[ widths.length ];
+
+        for ( int i = 1 ; i < widths.length ; i++ )
+            result[i] = result[i-1] + widths[i-1];
+
+        return result;
+    }
+
+    /**
+     * @return The number of fields.
+     */
+    public int size()
+    {
+        return _widths.length;
+    }
+
+    /**
+     * @return The number of bits spanned by the record.
+     */
+    public long bitLength()
+    {
+        return _bitLength;
+    }
+
+    /**
+     * @return The number of bytes spanned by the record.
+     */
+    public int byteLength()
+    {
+        return Math.toIntExact( (_bitLength + Byte.SIZE - 1) / Byte.SIZE );
+    }
+
+    /**
+     * Decode a record.
+     *
+     * @param source The buffer holding the record.
+     * @param byteOffset The offset of the record in the buffer.
+     * @return The field values, extended using zero bits.
+     * @throws IndexOutOfBoundsException If the record exceeds the buffer.
+     */
+    public long[] decode( byte[] source, int byteOffset )
+    {
+        long[] result = new long[ _widths.length ];
+
+        decode( source, byteOffset, result );
+
+        return result;
+    }
+
+    /**
+     * Decode a record into an existing array.
+     *
+     * @param source The buffer holding the record.
+     * @param byteOffset The offset of the record in the buffer.
+     * @param target Receives the field values, extended using zero bits.
+     * @throws IndexOutOfBoundsException If the record exceeds the buffer
+     * or the target is shorter than the number of fields.
+     */
+    public void decode( byte[] source, int byteOffset, long[] target )
+    {
+        long start = check( source.length, byteOffset, target );
+
+        for ( int i = 0 ; i < _widths.length ; i++ )
+            target[i] = _endianness.getBits(
+                    source,
+                    start + _offsets[i],
+                    _widths[i] );
+    }
+
+    /**
+     * Decode a record into an existing array.  The position of the passed
+     * buffer is not used and not modified.
+     *
+     * @param source The buffer holding the record.
+     * @param byteOffset The absolute offset of the record in the buffer.
+     * @param target Receives the field values, extended using zero bits.
+     * @throws IndexOutOfBoundsException If the record exceeds the buffer's
+     * limit or the target is shorter than the number of fields.
+     */
+    public void decode( ByteBuffer source, int byteOffset, long[] target )
+    {
+        long start = check( source.limit(), byteOffset, target );
+
+        for ( int i = 0 ; i < _widths.length ; i++ )
+            target[i] = _endianness.getBits(
+                    source,
+                    start + _offsets[i],
+                    _widths[i] );
+    }
+
+    /**
+     * Encode a record.  Bits not covered by a field are not modified.
+     * Values that do not fit into their field lose their most significant
+     * bits.
+     *
+     * @param values The field values.
+     * @param target The buffer receiving the record.
+     * @param byteOffset The offset of the record in the buffer.
+     * @throws IndexOutOfBoundsException If the record exceeds the buffer
+     * or the values are less than the number of fields.
+     */
+    public void encode( long[] values, byte[] target, int byteOffset )
+    {
+        long start = check( target.length, byteOffset, values );
+
+        for ( int i = 0 ; i < _widths.length ; i++ )
+            _endianness.putBits(
+                    values[i],
+                    target,
+                    start + _offsets[i],
+                    _widths[i] );
+    }
+
+    /**
+     * Encode a record.  The position of the passed buffer is not used and
+     * not modified.
+     *
+     * @param values The field values.
+     * @param target The buffer receiving the record.
+     * @param byteOffset The absolute offset of the record in the buffer.
+     * @throws IndexOutOfBoundsException If the record exceeds the buffer's
+     * limit or the values are less than the number of fields.
+     * @see #encode(long[], byte[], int)
+     */
+    public void encode( long[] values, ByteBuffer target, int byteOffset )
+    {
+        long start = check( target.limit(), byteOffset, values );
+
+        for ( int i = 0 ; i < _widths.length ; i++ )
+            _endianness.putBits(
+                    values[i],
+                    target,
+                    start + _offsets[i],
+                    _widths[i] );
+    }
+
+    /**
+     * Check that a record fits into the buffer and the values array.
+     *
+     * @param length The number of accessible bytes in the buffer.
+     * @return The bit offset of the record.
+     */
+    private long check( int length, int byteOffset, long[] values )
+    {
+        if ( values.length < _widths.length )
+            throw new IndexOutOfBoundsException( String.format(
+                    "Array length %d less than field count %d.",
+                    values.length,
+                    _widths.length ) );
+
+        if ( byteOffset < 0 ||
+                byteOffset > length - byteLength() )
+            throw new IndexOutOfBoundsException( String.format(
+                    "Record of %d bytes at %d exceeds buffer of %d bytes.",
+                    byteLength(),
+                    byteOffset,
+                    length ) );
+
+        return (long)byteOffset * Byte.SIZE;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                "%s %s %s",
+                _endianness,
+                Arrays.toString( _offsets ),
+                Arrays.toString( _widths ) );
+    }
+}
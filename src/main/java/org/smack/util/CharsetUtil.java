@@ -0,0 +1,50 @@
+/* $Id$
+ *
+ * Common.
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Character set utilities.
+ *
+ * @author Michael Binz
+ */
+final class CharsetUtil
+{
+    /**
+     * Instantiation forbidden.
+     */
+    private CharsetUtil()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Check if line terminators, white space and the '#' character can be
+     * recognized on the byte level in the passed character set.  That is,
+     * if these are encoded as in US-ASCII and no multibyte sequence
+     * contains a byte in the ASCII range.
+     *
+     * @param cs The character set to check.
+     * @return True if the character set is ASCII compatible.
+     */
+    static boolean isAsciiCompatible( Charset cs )
+    {
+        if ( StandardCharsets.UTF_8.equals( cs ) )
+            return true;
+        if ( cs.newEncoder().maxBytesPerChar() != 1 )
+            return false;
+
+        String probe = "\t\n\r #";
+        return Arrays.equals(
+                probe.getBytes( StandardCharsets.US_ASCII ),
+                probe.getBytes( cs ) );
+    }
+}
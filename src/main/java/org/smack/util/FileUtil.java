@@ -15,14 +15,36 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Vector;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.swing.filechooser.FileFilter;
 
@@ -48,29 +70,187 @@ public final class FileUtil
      *
      * @param files The file list including directories.
      * @return A list of files. No directories are part of this list.
+     * @see #resolveDirectories(Collection, BiPredicate)
      */
     public static File[] resolveDirectories( File[] files )
     {
-        Vector<File> fs = new Vector<>();
+        var result = new ArrayList<File>();
 
         for ( File file : files )
+            resolveDirectories( file, result );
+
+        return result.toArray( new File[result.size()] );
+    }
+
+    private static void resolveDirectories( File file, List<File> result )
+    {
+        if ( ! file.isDirectory() )
         {
-            if ( file.isDirectory() )
+            result.add( file );
+            return;
+        }
+
+        File[] dirContents = file.listFiles();
+
+        if ( dirContents == null )
+            return;
+
+        for ( File c : dirContents )
+            resolveDirectories( c, result );
+    }
+
+    /**
+     * Resolves directories in the passed paths lazily.  Paths that are not
+     * directories are part of the result, directories are replaced
+     * recursively by their contained files.  The filter is applied to each
+     * file using the attributes already read during the walk.  Symbolic
+     * links are not followed.
+     * <p>
+     * The returned stream holds open directories and has to be closed.
+     * Errors are reported as {@link UncheckedIOException}.
+     * </p>
+     *
+     * @param paths The paths to resolve.
+     * @param filter Selects the files in the result.
+     * @return The accepted files.  No directories are part of the result.
+     */
+    public static Stream<Path> resolveDirectories(
+            Collection<Path> paths,
+            BiPredicate<Path, BasicFileAttributes> filter )
+    {
+        BiPredicate<Path, BasicFileAttributes> files =
+                (p, a) -> ! a.isDirectory() && filter.test( p, a );
+
+        return paths.stream().flatMap( path ->
+        {
+            try
+            {
+                return Files.find( path, Integer.MAX_VALUE, files );
+            }
+            catch ( IOException e )
             {
-                File[] dirContents = file.listFiles();
-                if ( dirContents != null && dirContents.length > 0 )
+                throw new UncheckedIOException( e );
+            }
+        } );
+    }
+
+    /**
+     * Resolves directories in the passed paths in parallel.  Each
+     * directory is listed in a separate task on the passed pool.  Apart
+     * from that identical to
+     * {@link #resolveDirectories(Collection, BiPredicate)}.
+     *
+     * @param pool The pool executing the directory listings.
+     * @param paths The paths to resolve.
+     * @param filter Selects the files in the result.  Called concurrently.
+     * @return The accepted files.  Files in the same directory are in
+     * listing order, directories in the order of their parent's listing.
+     * @throws IOException If a path cannot be read.
+     */
+    public static List<Path> resolveDirectories(
+            ForkJoinPool pool,
+            Collection<Path> paths,
+            BiPredicate<Path, BasicFileAttributes> filter )
+        throws IOException
+    {
+        try
+        {
+            return pool.invoke(
+                    new ResolveTask( null, List.copyOf( paths ), filter ) );
+        }
+        catch ( UncheckedIOException e )
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Resolves a directory or a list of paths.  Subdirectories are forked
+     * into separate tasks.
+     */
+    private static final class ResolveTask extends RecursiveTask<List<Path>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Path _directory;
+        private final List<Path> _paths;
+        private final BiPredicate<Path, BasicFileAttributes> _filter;
+
+        /**
+         * @param directory The directory to resolve or null.
+         * @param paths The paths to resolve if no directory is passed.
+         */
+        ResolveTask(
+                Path directory,
+                List<Path> paths,
+                BiPredicate<Path, BasicFileAttributes> filter )
+        {
+            _directory = directory;
+            _paths = paths;
+            _filter = filter;
+        }
+
+        @Override
+        protected List<Path> compute()
+        {
+            var result = new ArrayList<Path>();
+            var subdirectories = new ArrayList<ResolveTask>();
+
+            try
+            {
+                if ( _directory == null )
+                    resolve( _paths, result, subdirectories );
+                else
                 {
-                    for ( File c : resolveDirectories( dirContents ) )
-                        fs.add( c );
+                    try ( var entries = Files.newDirectoryStream( _directory ) )
+                    {
+                        resolve( entries, result, subdirectories );
+                    }
                 }
             }
-            else
+            catch ( IOException e )
             {
-                fs.add( file );
+                throw new UncheckedIOException( e );
             }
+
+            for ( var task : subdirectories )
+                result.addAll( task.join() );
+
+            return result;
         }
 
-        return fs.toArray( new File[fs.size()] );
+        private void resolve(
+                Iterable<Path> paths,
+                List<Path> result,
+                List<ResolveTask> subdirectories )
+            throws IOException
+        {
+            for ( var path : paths )
+                resolve( path, result, subdirectories );
+        }
+
+        private void resolve(
+                Path path,
+                List<Path> result,
+                List<ResolveTask> subdirectories )
+            throws IOException
+        {
+            var attributes = Files.readAttributes(
+                    path,
+                    BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS );
+
+            if ( attributes.isDirectory() )
+            {
+                var task = new ResolveTask( path, null, _filter );
+                task.fork();
+                subdirectories.add( task );
+            }
+            else if ( _filter.test( path, attributes ) )
+            {
+                result.add( path );
+            }
+        }
     }
 
     /**
@@ -104,15 +284,9 @@ public final class FileUtil
      */
     public static File[] filterFiles( File[] files, FileFilter filter )
     {
-        Vector<File> collector = new Vector<>( files.length );
-
-        for ( File f : files )
-        {
-            if ( filter.accept( f ) )
-                collector.add( f );
-        }
-
-        return collector.toArray( new File[ collector.size() ] );
+        return Arrays.stream( files )
+                .filter( filter::accept )
+                .toArray( File[]::new );
     }
 
     private final static char SUFFIX_SEPARATOR = '.';
@@ -198,26 +372,301 @@ public final class FileUtil
                 new InputStreamReader( in ) );
     }
 
+    /**
+     * Read the lines from a reader lazily.  Closing the returned stream
+     * closes the reader.  Errors are reported as
+     * {@link UncheckedIOException}.
+     *
+     * @param in The reader to use.
+     * @return The lines read.
+     * @see #readLines(Reader)
+     */
+    public static Stream<String> lines( Reader in )
+    {
+        var din = new BufferedReader( in );
+
+        return din.lines().onClose( () -> forceClose( din ) );
+    }
+
+    /**
+     * Read the lines from a stream lazily.  Closing the returned stream
+     * closes the passed stream.  Errors are reported as
+     * {@link UncheckedIOException}.
+     *
+     * @param in The stream to use.
+     * @return The lines read.
+     * @see #readLines(InputStream)
+     */
+    public static Stream<String> lines( InputStream in )
+    {
+        return lines(
+                new InputStreamReader( in ) );
+    }
+
+    /**
+     * Read the lines from a file lazily.  Lines are terminated by a line
+     * feed, a carriage return, or a carriage return followed by a line
+     * feed.  If line terminators can be detected on the byte level in the
+     * passed character set, the file is memory mapped and lines are only
+     * decoded when consumed.  In this case the returned stream can
+     * efficiently be processed in parallel, the file is split into chunks
+     * at line boundaries.  Otherwise the file is read sequentially.
+     * <p>
+     * The returned stream has to be closed.  Errors are reported as
+     * {@link UncheckedIOException}.  This includes malformed or unmappable
+     * input in the passed character set.
+     * </p>
+     *
+     * @param file The file to read.
+     * @param cs The character set of the file.
+     * @return The lines read.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Stream<String> lines( Path file, Charset cs )
+        throws IOException
+    {
+        return lines( file, cs, MappedLines.WINDOW_SIZE );
+    }
+
+    /**
+     * Read the lines from a file lazily.
+     *
+     * @param file The file to read.
+     * @param cs The character set of the file.
+     * @param windowSize The size of the mapped windows.  Small values
+     * allow to test lines crossing window boundaries.
+     * @return The lines read.
+     * @throws IOException If the file cannot be opened.
+     * @see #lines(Path, Charset)
+     */
+    static Stream<String> lines( Path file, Charset cs, int windowSize )
+        throws IOException
+    {
+        if ( ! CharsetUtil.isAsciiCompatible( cs ) )
+            return lines( Files.newBufferedReader( file, cs ) );
+
+        var channel = FileChannel.open( file, StandardOpenOption.READ );
+
+        try
+        {
+            return StreamSupport.stream(
+                    new MappedLines( channel, cs, windowSize, 0, channel.size() ),
+                    false )
+                .onClose( () -> forceClose( channel ) );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            forceClose( channel );
+            throw e;
+        }
+    }
+
+    /**
+     * Splits a range of a memory mapped file into lines.  The range is
+     * mapped in windows, so files exceeding the size of a single mapping
+     * are supported.  Ranges are split at line boundaries.
+     */
+    private static final class MappedLines implements Spliterator<String>
+    {
+        /**
+         * The default size of the mapped windows.
+         */
+        static final int WINDOW_SIZE = 1 << 26;
+
+        /**
+         * Ranges smaller than this are not split.
+         */
+        private static final int MIN_SPLIT = 1 << 16;
+
+        private final FileChannel _channel;
+        private final Charset _cs;
+
+        /**
+         * Reports malformed input like the reader used for character sets
+         * that are not ASCII compatible.  Decoders are not thread safe, so
+         * each split has its own.
+         */
+        private final CharsetDecoder _decoder;
+
+        private final int _windowSize;
+
+        /**
+         * The start of the next line.
+         */
+        private long _position;
+
+        /**
+         * The end of the range.  This is a line boundary.
+         */
+        private long _end;
+
+        private MappedByteBuffer _window;
+        private long _windowStart;
+
+        MappedLines(
+                FileChannel channel,
+                Charset cs,
+                int windowSize,
+                long position,
+                long end )
+        {
+            _channel = channel;
+            _cs = cs;
+            _decoder = cs.newDecoder()
+                    .onMalformedInput( CodingErrorAction.REPORT )
+                    .onUnmappableCharacter( CodingErrorAction.REPORT );
+            _windowSize = windowSize;
+            _position = position;
+            _end = end;
+        }
+
+        @Override
+        public boolean tryAdvance( Consumer<? super String> action )
+        {
+            if ( _position >= _end )
+                return false;
+
+            try
+            {
+                long start = _position;
+                long terminator = findTerminator( start );
+
+                _position = skipTerminator( terminator );
+
+                action.accept( decode( start, terminator ) );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit()
+        {
+            if ( _end - _position < MIN_SPLIT )
+                return null;
+
+            try
+            {
+                long middle = _position + (_end - _position) / 2;
+                long split = skipTerminator( findTerminator( middle ) );
+
+                if ( split >= _end )
+                    return null;
+
+                var result = new MappedLines(
+                        _channel, _cs, _windowSize, _position, split );
+                _position = split;
+                return result;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return _end - _position;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        /**
+         * @return The position of the next line terminator or the end of
+         * the range.
+         */
+        private long findTerminator( long position ) throws IOException
+        {
+            for ( ; position < _end ; position++ )
+            {
+                byte c = byteAt( position );
+
+                if ( c == '\n' || c == '\r' )
+                    return position;
+            }
+
+            return _end;
+        }
+
+        /**
+         * @return The position behind the passed line terminator.
+         */
+        private long skipTerminator( long terminator ) throws IOException
+        {
+            if ( terminator >= _end )
+                return _end;
+
+            if ( byteAt( terminator ) == '\r' &&
+                    terminator + 1 < _end &&
+                    byteAt( terminator + 1 ) == '\n' )
+                return terminator + 2;
+
+            return terminator + 1;
+        }
+
+        private byte byteAt( long position ) throws IOException
+        {
+            if ( _window == null ||
+                    position < _windowStart ||
+                    position >= _windowStart + _window.limit() )
+            {
+                _window = map( position, Math.min( _windowSize, _end - position ) );
+                _windowStart = position;
+            }
+
+            return _window.get( (int)(position - _windowStart) );
+        }
+
+        private String decode( long start, long end ) throws IOException
+        {
+            ByteBuffer line;
+
+            if ( _window != null &&
+                    start >= _windowStart &&
+                    end <= _windowStart + _window.limit() )
+            {
+                line = _window.duplicate();
+                line.position( (int)(start - _windowStart) );
+                line.limit( (int)(end - _windowStart) );
+            }
+            else
+            {
+                if ( end - start > Integer.MAX_VALUE )
+                    throw new IOException( "Line too long at " + start );
+
+                line = map( start, end - start );
+            }
+
+            return _decoder.decode( line ).toString();
+        }
+
+        private MappedByteBuffer map( long position, long size ) throws IOException
+        {
+            return _channel.map( FileChannel.MapMode.READ_ONLY, position, size );
+        }
+    }
+
     /**
      * Deletes a directory recursively.
      *
      * @param dir The directory to delete.
      * @return true if successful.
+     * @see #delete(ForkJoinPool, Path)
      */
     public static boolean delete( File dir )
     {
-        if ( ! dir.exists() )
-            return true;
-
-        if ( dir.isFile() )
-            return dir.delete();
-
         try
         {
-            Files.walk( dir.toPath() )
-                .sorted(Comparator.reverseOrder())
-                .map(Path::toFile)
-                .forEach(File::delete);
+            delete( ForkJoinPool.commonPool(), dir.toPath() );
         }
         catch ( Exception e )
         {
@@ -231,6 +680,170 @@ public final class FileUtil
         return true;
     }
 
+    /**
+     * Deletes a file or a directory recursively.  Directory contents are
+     * deleted while walking the tree, each directory is deleted after its
+     * contents.  Subdirectories are processed in parallel tasks on the
+     * passed pool.  Symbolic links are deleted, not followed.  Entries
+     * that cannot be deleted do not stop the operation.  The directories
+     * containing them are kept and not reported as additional failures.
+     * Deleting a path that does not exist succeeds.
+     *
+     * @param pool The pool executing the deletion.
+     * @param path The file or directory to delete.
+     * @throws IOException If entries could not be deleted.  The message
+     * holds the number of failures, the first failures are attached as
+     * suppressed exceptions.
+     */
+    public static void delete( ForkJoinPool pool, Path path )
+        throws IOException
+    {
+        var failures = new DeleteFailures();
+
+        if ( Files.isDirectory( path, LinkOption.NOFOLLOW_LINKS ) )
+            pool.invoke( new DeleteTask( path, failures ) );
+        else
+            failures.delete( path );
+
+        failures.check( path );
+    }
+
+    /**
+     * Collects the failures of a delete operation.  Thread safe.
+     */
+    private static final class DeleteFailures
+    {
+        /**
+         * The maximum number of failures attached to the reported
+         * exception.
+         */
+        private static final int MAX_REPORTED = 16;
+
+        private final AtomicLong _count =
+                new AtomicLong();
+        private final Queue<IOException> _reported =
+                new ConcurrentLinkedQueue<>();
+
+        /**
+         * Delete a file or an empty directory and record a failure.
+         *
+         * @return True if the path is gone.
+         */
+        boolean delete( Path path )
+        {
+            try
+            {
+                Files.delete( path );
+            }
+            catch ( NoSuchFileException ignore )
+            {
+                // Already gone.
+            }
+            catch ( IOException e )
+            {
+                add( e );
+                return false;
+            }
+
+            return true;
+        }
+
+        void add( IOException e )
+        {
+            if ( _count.incrementAndGet() <= MAX_REPORTED )
+                _reported.add( e );
+        }
+
+        /**
+         * @throws IOException If failures were recorded.
+         */
+        void check( Path path ) throws IOException
+        {
+            if ( _count.get() == 0 )
+                return;
+
+            var result = new IOException( String.format(
+                    "Failed to delete %d entries in %s.",
+                    _count.get(),
+                    path ) );
+
+            _reported.forEach( result::addSuppressed );
+
+            throw result;
+        }
+    }
+
+    /**
+     * Deletes a directory.  Subdirectories are forked into separate tasks.
+     * The result is true if the directory is gone.
+     */
+    private static final class DeleteTask extends RecursiveTask<Boolean>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Path _directory;
+        private final DeleteFailures _failures;
+
+        DeleteTask( Path directory, DeleteFailures failures )
+        {
+            _directory = directory;
+            _failures = failures;
+        }
+
+        @Override
+        protected Boolean compute()
+        {
+            var subdirectories = new ArrayList<DeleteTask>();
+            // True if all entries are deleted.
+            boolean empty = true;
+
+            try ( var entries = Files.newDirectoryStream( _directory ) )
+            {
+                for ( var path : entries )
+                {
+                    if ( Files.isDirectory( path, LinkOption.NOFOLLOW_LINKS ) )
+                    {
+                        var task = new DeleteTask( path, _failures );
+                        task.fork();
+                        subdirectories.add( task );
+                    }
+                    else if ( ! _failures.delete( path ) )
+                    {
+                        empty = false;
+                    }
+                }
+            }
+            catch ( NoSuchFileException ignore )
+            {
+                // Already gone.
+                return Boolean.TRUE;
+            }
+            catch ( IOException e )
+            {
+                _failures.add( e );
+                empty = false;
+            }
+            catch ( DirectoryIteratorException e )
+            {
+                _failures.add( e.getCause() );
+                empty = false;
+            }
+
+            for ( var task : subdirectories )
+            {
+                if ( ! task.join() )
+                    empty = false;
+            }
+
+            // A directory holding entries cannot be deleted.  Its failure
+            // would only repeat the failures already recorded.
+            if ( ! empty )
+                return Boolean.FALSE;
+
+            return _failures.delete( _directory );
+        }
+    }
+
     /**
      * Instances cannot be created.
      */
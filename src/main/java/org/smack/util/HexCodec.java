@@ -0,0 +1,354 @@
+/* $Id$
+ *
+ * Utilities
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A table driven hex encoder and decoder.  Each byte is encoded as two
+ * lower case hex digits.  The decoder accepts upper and lower case digits.
+ * Apart from the results the operations do not allocate, so they can be
+ * used on large buffers.
+ *
+ * @author Michael Binz
+ */
+public final class HexCodec
+{
+    /**
+     * The number of bytes encoded at once when writing to an
+     * {@link Appendable}.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final char[] DIGITS =
+            "0123456789abcdef".toCharArray();
+
+    /**
+     * The value of a hex digit or -1, indexed by character.
+     */
+    private static final byte[] VALUES = new byte[ 128 ];
+
+    static
+    {
+        Arrays.fill( VALUES, (byte)-1 );
+
+        for ( int i = 0 ; i < DIGITS.length ; i++ )
+        {
+            VALUES[ DIGITS[i] ] = (byte)i;
+            VALUES[ Character.toUpperCase( DIGITS[i] ) ] = (byte)i;
+        }
+    }
+
+    /**
+     * Instantiation forbidden.
+     */
+    private HexCodec()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Get a hex digit.
+     *
+     * @param value The value to encode.  Only the lowest four bits are used.
+     * @return The lower case hex digit.
+     */
+    public static char toDigit( int value )
+    {
+        return DIGITS[ value & 0xf ];
+    }
+
+    /**
+     * Get the value of a hex digit.
+     *
+     * @param c The upper or lower case hex digit.
+     * @return The value of the digit or -1 if the passed character is not
+     * a hex digit.
+     */
+    public static int fromDigit( int c )
+    {
+        return c >= 0 && c < VALUES.length ?
+                VALUES[c] :
+                -1;
+    }
+
+    /**
+     * Encode an array.  For input 1,2,10,15 the result is "01020a0f".
+     *
+     * @param bytes The bytes to encode.
+     * @return The hex string.
+     */
+    public static String encode( byte[] bytes )
+    {
+        return encode( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Encode a range of an array.
+     *
+     * @param bytes The bytes to encode.
+     * @param offset The index of the first byte to encode.
+     * @param length The number of bytes to encode.
+     * @return The hex string.
+     * @throws IndexOutOfBoundsException If the range exceeds the array.
+     */
+    public static String encode( byte[] bytes, int offset, int length )
+    {
+        var result = new char[ Math.multiplyExact( length, 2 ) ];
+
+        encode( bytes, offset, length, result, 0 );
+
+        return new String( result );
+    }
+
+    /**
+     * Encode a range of an array into a character array.
+     *
+     * @param bytes The bytes to encode.
+     * @param offset The index of the first byte to encode.
+     * @param length The number of bytes to encode.
+     * @param target Receives the hex digits.
+     * @param targetIdx The first index written in the target.
+     * @return The number of characters written, twice the length.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static int encode(
+            byte[] bytes,
+            int offset,
+            int length,
+            char[] target,
+            int targetIdx )
+    {
+        Objects.checkFromIndexSize( offset, length, bytes.length );
+        Objects.checkFromIndexSize(
+                targetIdx,
+                Math.multiplyExact( length, 2 ),
+                target.length );
+
+        for ( int i = offset, end = offset + length ; i < end ; i++ )
+        {
+            int b = bytes[i];
+            target[targetIdx++] = DIGITS[ (b >>> 4) & 0xf ];
+            target[targetIdx++] = DIGITS[ b & 0xf ];
+        }
+
+        return length * 2;
+    }
+
+    /**
+     * Encode a range of an array to an appendable.  Large ranges are
+     * encoded in chunks.
+     *
+     * @param <A> The type of the appendable.
+     * @param bytes The bytes to encode.
+     * @param offset The index of the first byte to encode.
+     * @param length The number of bytes to encode.
+     * @param target Receives the hex digits.
+     * @return The passed target.
+     * @throws IOException If writing to the target failed.
+     * @throws IndexOutOfBoundsException If the range exceeds the array.
+     */
+    public static <A extends Appendable> A encode(
+            byte[] bytes,
+            int offset,
+            int length,
+            A target )
+        throws IOException
+    {
+        Objects.checkFromIndexSize( offset, length, bytes.length );
+
+        if ( target instanceof StringBuilder )
+        {
+            var sb = (StringBuilder)target;
+            sb.ensureCapacity( sb.length() + 2 * length );
+
+            for ( int i = offset, end = offset + length ; i < end ; i++ )
+            {
+                int b = bytes[i];
+                sb.append( DIGITS[ (b >>> 4) & 0xf ] );
+                sb.append( DIGITS[ b & 0xf ] );
+            }
+
+            return target;
+        }
+
+        var chunk = new char[ 2 * Math.min( length, CHUNK_SIZE ) ];
+
+        for ( int done = 0 ; done < length ; )
+        {
+            int count = Math.min( CHUNK_SIZE, length - done );
+            int chars = encode( bytes, offset + done, count, chunk, 0 );
+
+            if ( target instanceof Writer )
+                ((Writer)target).write( chunk, 0, chars );
+            else
+                target.append( CharBuffer.wrap( chunk, 0, chars ) );
+
+            done += count;
+        }
+
+        return target;
+    }
+
+    /**
+     * Encode the remaining bytes of a buffer into another buffer holding
+     * the hex digits as ASCII characters.  Encodes as many bytes as the
+     * target has room for and advances the positions of both buffers.
+     * Call repeatedly to stream a large buffer through a small one.
+     *
+     * @param source The bytes to encode.
+     * @param target Receives the hex digits.
+     * @return The number of encoded bytes.
+     */
+    public static int encode( ByteBuffer source, ByteBuffer target )
+    {
+        int count = Math.min( source.remaining(), target.remaining() / 2 );
+
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            int b = source.get();
+            target.put( (byte)DIGITS[ (b >>> 4) & 0xf ] );
+            target.put( (byte)DIGITS[ b & 0xf ] );
+        }
+
+        return count;
+    }
+
+    /**
+     * Decode a string of hex digits.
+     *
+     * @param digits The digits to decode.
+     * @return The decoded bytes.
+     * @throws NumberFormatException If the number of digits is odd or on
+     * an invalid digit.  The message contains the index of the invalid
+     * digit.
+     */
+    public static byte[] decode( CharSequence digits )
+    {
+        return decode( digits, 0, digits.length() );
+    }
+
+    /**
+     * Decode a range of hex digits.
+     *
+     * @param digits The digits to decode.
+     * @param start The index of the first digit.
+     * @param end The index after the last digit.
+     * @return The decoded bytes.
+     * @throws NumberFormatException If the number of digits is odd or on
+     * an invalid digit.  The message contains the index of the invalid
+     * digit.
+     * @throws IndexOutOfBoundsException If the range exceeds the digits.
+     */
+    public static byte[] decode( CharSequence digits, int start, int end )
+    {
+        Objects.checkFromToIndex( start, end, digits.length() );
+        checkEven( start, end );
+
+        var result = new byte[ (end - start) / 2 ];
+
+        decode( digits, start, end, result, 0 );
+
+        return result;
+    }
+
+    /**
+     * Decode a range of hex digits into an array.
+     *
+     * @param digits The digits to decode.
+     * @param start The index of the first digit.
+     * @param end The index after the last digit.
+     * @param target Receives the decoded bytes.
+     * @param targetIdx The first index written in the target.
+     * @return The number of decoded bytes.
+     * @throws NumberFormatException If the number of digits is odd or on
+     * an invalid digit.  The message contains the index of the invalid
+     * digit.  The target may be partially written.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static int decode(
+            CharSequence digits,
+            int start,
+            int end,
+            byte[] target,
+            int targetIdx )
+    {
+        Objects.checkFromToIndex( start, end, digits.length() );
+        checkEven( start, end );
+        int count = (end - start) / 2;
+        Objects.checkFromIndexSize( targetIdx, count, target.length );
+
+        for ( int i = start ; i < end ; i += 2 )
+            target[targetIdx++] = (byte)
+                ((value( digits, i ) << 4) | value( digits, i + 1 ));
+
+        return count;
+    }
+
+    /**
+     * Decode a range of hex digits into a buffer.  Advances the position
+     * of the buffer.
+     *
+     * @param digits The digits to decode.
+     * @param start The index of the first digit.
+     * @param end The index after the last digit.
+     * @param target Receives the decoded bytes.
+     * @return The number of decoded bytes.
+     * @throws NumberFormatException If the number of digits is odd or on
+     * an invalid digit.  The message contains the index of the invalid
+     * digit.  The target may be partially written.
+     * @throws IndexOutOfBoundsException If the range exceeds the digits.
+     * @throws BufferOverflowException If the target has not
+     * enough room.  Nothing is written in this case.
+     */
+    public static int decode(
+            CharSequence digits,
+            int start,
+            int end,
+            ByteBuffer target )
+    {
+        Objects.checkFromToIndex( start, end, digits.length() );
+        checkEven( start, end );
+        int count = (end - start) / 2;
+        if ( count > target.remaining() )
+            throw new BufferOverflowException();
+
+        for ( int i = start ; i < end ; i += 2 )
+            target.put( (byte)
+                ((value( digits, i ) << 4) | value( digits, i + 1 )) );
+
+        return count;
+    }
+
+    private static void checkEven( int start, int end )
+    {
+        if ( MathUtil.isOdd( end - start ) )
+            throw new NumberFormatException(
+                    "Odd number of hex digits: " + (end - start) + "." );
+    }
+
+    private static int value( CharSequence digits, int index )
+    {
+        char c = digits.charAt( index );
+        int result = fromDigit( c );
+
+        if ( result < 0 )
+            throw new NumberFormatException( String.format(
+                    "Invalid hex digit '%s' at index %d.",
+                    c,
+                    index ) );
+
+        return result;
+    }
+}
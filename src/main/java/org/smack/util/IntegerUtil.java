@@ -7,9 +7,12 @@
  */
 package org.smack.util;
 
-import java.util.ArrayList;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Objects;
 
 /**
  * Support classes for working with integer values.  Note that in the
@@ -135,6 +138,7 @@ public class IntegerUtil
      * @throws IllegalArgumentException If bitCount is not a multiple of eight,
      * if bitCount is larger than 64 or if the buffer does not contain
      * bitCount/8 bytes beginning with the startIdx.
+     * @see #getBits(Endianness, byte[], long, int)
      */
     public static long toInteger(
             Endianness endianness,
@@ -280,6 +284,398 @@ public class IntegerUtil
         endianness.fromLong( value, Short.SIZE, target, targetIdx );
     }
 
+    /**
+     * Decode an array of 32 bit integers.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The bytes to decode.
+     * @param sourceIdx The index of the first byte to decode.
+     * @param target The array receiving the result.
+     * @param targetIdx The first index used when writing into the target array.
+     * @param count The number of integers to decode.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static void toInts(
+            Endianness endianness,
+            byte[] source,
+            int sourceIdx,
+            int[] target,
+            int targetIdx,
+            int count )
+    {
+        Objects.checkFromIndexSize( targetIdx, count, target.length );
+        Objects.checkFromIndexSize(
+                sourceIdx,
+                Math.multiplyExact( count, Integer.BYTES ),
+                source.length );
+
+        endianness.toInts( source, sourceIdx, target, targetIdx, count );
+    }
+
+    /**
+     * Decode an array of 32 bit integers.  The position of the passed
+     * buffer is not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The bytes to decode.
+     * @param sourceIdx The absolute index of the first byte to decode.
+     * @param target The array receiving the result.
+     * @param targetIdx The first index used when writing into the target array.
+     * @param count The number of integers to decode.
+     * @throws IndexOutOfBoundsException If a range exceeds its array or the
+     * limit of the buffer.
+     */
+    public static void toInts(
+            Endianness endianness,
+            ByteBuffer source,
+            int sourceIdx,
+            int[] target,
+            int targetIdx,
+            int count )
+    {
+        Objects.checkFromIndexSize(
+                sourceIdx,
+                Math.multiplyExact( count, Integer.BYTES ),
+                source.limit() );
+
+        view( endianness, source, sourceIdx )
+            .asIntBuffer()
+            .get( target, targetIdx, count );
+    }
+
+    /**
+     * Decode an array of 64 bit integers.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The bytes to decode.
+     * @param sourceIdx The index of the first byte to decode.
+     * @param target The array receiving the result.
+     * @param targetIdx The first index used when writing into the target array.
+     * @param count The number of integers to decode.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static void toLongs(
+            Endianness endianness,
+            byte[] source,
+            int sourceIdx,
+            long[] target,
+            int targetIdx,
+            int count )
+    {
+        Objects.checkFromIndexSize( targetIdx, count, target.length );
+        Objects.checkFromIndexSize(
+                sourceIdx,
+                Math.multiplyExact( count, Long.BYTES ),
+                source.length );
+
+        endianness.toLongs( source, sourceIdx, target, targetIdx, count );
+    }
+
+    /**
+     * Decode an array of 64 bit integers.  The position of the passed
+     * buffer is not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The bytes to decode.
+     * @param sourceIdx The absolute index of the first byte to decode.
+     * @param target The array receiving the result.
+     * @param targetIdx The first index used when writing into the target array.
+     * @param count The number of integers to decode.
+     * @throws IndexOutOfBoundsException If a range exceeds its array or the
+     * limit of the buffer.
+     */
+    public static void toLongs(
+            Endianness endianness,
+            ByteBuffer source,
+            int sourceIdx,
+            long[] target,
+            int targetIdx,
+            int count )
+    {
+        Objects.checkFromIndexSize(
+                sourceIdx,
+                Math.multiplyExact( count, Long.BYTES ),
+                source.limit() );
+
+        view( endianness, source, sourceIdx )
+            .asLongBuffer()
+            .get( target, targetIdx, count );
+    }
+
+    /**
+     * Encode an array of 32 bit integers.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The integers to encode.
+     * @param sourceIdx The index of the first integer to encode.
+     * @param count The number of integers to encode.
+     * @param target The buffer receiving the result.
+     * @param targetIdx The first index used when writing into the target buffer.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static void fromInts(
+            Endianness endianness,
+            int[] source,
+            int sourceIdx,
+            int count,
+            byte[] target,
+            int targetIdx )
+    {
+        Objects.checkFromIndexSize( sourceIdx, count, source.length );
+        Objects.checkFromIndexSize(
+                targetIdx,
+                Math.multiplyExact( count, Integer.BYTES ),
+                target.length );
+
+        endianness.fromInts( source, sourceIdx, count, target, targetIdx );
+    }
+
+    /**
+     * Encode an array of 32 bit integers.  The position of the passed
+     * buffer is not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The integers to encode.
+     * @param sourceIdx The index of the first integer to encode.
+     * @param count The number of integers to encode.
+     * @param target The buffer receiving the result.
+     * @param targetIdx The absolute index used when writing into the target
+     * buffer.
+     * @throws IndexOutOfBoundsException If a range exceeds its array or the
+     * limit of the buffer.
+     */
+    public static void fromInts(
+            Endianness endianness,
+            int[] source,
+            int sourceIdx,
+            int count,
+            ByteBuffer target,
+            int targetIdx )
+    {
+        Objects.checkFromIndexSize(
+                targetIdx,
+                Math.multiplyExact( count, Integer.BYTES ),
+                target.limit() );
+
+        view( endianness, target, targetIdx )
+            .asIntBuffer()
+            .put( source, sourceIdx, count );
+    }
+
+    /**
+     * Encode an array of 64 bit integers.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The integers to encode.
+     * @param sourceIdx The index of the first integer to encode.
+     * @param count The number of integers to encode.
+     * @param target The buffer receiving the result.
+     * @param targetIdx The first index used when writing into the target buffer.
+     * @throws IndexOutOfBoundsException If a range exceeds its array.
+     */
+    public static void fromLongs(
+            Endianness endianness,
+            long[] source,
+            int sourceIdx,
+            int count,
+            byte[] target,
+            int targetIdx )
+    {
+        Objects.checkFromIndexSize( sourceIdx, count, source.length );
+        Objects.checkFromIndexSize(
+                targetIdx,
+                Math.multiplyExact( count, Long.BYTES ),
+                target.length );
+
+        endianness.fromLongs( source, sourceIdx, count, target, targetIdx );
+    }
+
+    /**
+     * Encode an array of 64 bit integers.  The position of the passed
+     * buffer is not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param source The integers to encode.
+     * @param sourceIdx The index of the first integer to encode.
+     * @param count The number of integers to encode.
+     * @param target The buffer receiving the result.
+     * @param targetIdx The absolute index used when writing into the target
+     * buffer.
+     * @throws IndexOutOfBoundsException If a range exceeds its array or the
+     * limit of the buffer.
+     */
+    public static void fromLongs(
+            Endianness endianness,
+            long[] source,
+            int sourceIdx,
+            int count,
+            ByteBuffer target,
+            int targetIdx )
+    {
+        Objects.checkFromIndexSize(
+                targetIdx,
+                Math.multiplyExact( count, Long.BYTES ),
+                target.limit() );
+
+        view( endianness, target, targetIdx )
+            .asLongBuffer()
+            .put( source, sourceIdx, count );
+    }
+
+    /**
+     * Create a view on a buffer with the byte order of the passed
+     * endianness, starting at the passed index.
+     */
+    private static ByteBuffer view(
+            Endianness endianness,
+            ByteBuffer buffer,
+            int index )
+    {
+        return buffer.duplicate()
+                .order( endianness.getByteOrder() )
+                .position( index );
+    }
+
+    /**
+     * Read a field of arbitrary bit width and offset.  In {@link #Big}
+     * endianness bit offset zero is the most significant bit of the first
+     * byte and the field's bits are in most significant first order.  In
+     * {@link #Little} endianness bit offset zero is the least significant
+     * bit of the first byte and the field's bits are in least significant
+     * first order.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param bytes The buffer to read.
+     * @param bitOffset The offset of the field in bits.
+     * @param bitCount The width of the field, 1 to 64.
+     * @return The value of the field, extended using zero bits.
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the buffer.
+     */
+    public static long getBits(
+            Endianness endianness,
+            byte[] bytes,
+            long bitOffset,
+            int bitCount )
+    {
+        checkBits( bytes.length, bitOffset, bitCount );
+
+        return endianness.getBits( bytes, bitOffset, bitCount );
+    }
+
+    /**
+     * Read a field of arbitrary bit width and offset.  The position of the
+     * passed buffer is not used and not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param bytes The buffer to read.
+     * @param bitOffset The absolute offset of the field in bits.
+     * @param bitCount The width of the field, 1 to 64.
+     * @return The value of the field, extended using zero bits.
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the buffer's
+     * limit.
+     * @see #getBits(Endianness, byte[], long, int)
+     */
+    public static long getBits(
+            Endianness endianness,
+            ByteBuffer bytes,
+            long bitOffset,
+            int bitCount )
+    {
+        checkBits( bytes, bitOffset, bitCount );
+
+        return endianness.getBits( bytes, bitOffset, bitCount );
+    }
+
+    /**
+     * Write a field of arbitrary bit width and offset.  The bits of the
+     * target outside of the field are not modified.  If the value does not
+     * fit into the field its most significant bits are dropped.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param value The value to write.
+     * @param target The buffer to write to.
+     * @param bitOffset The offset of the field in bits.
+     * @param bitCount The width of the field, 1 to 64.
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the buffer.
+     * @see #getBits(Endianness, byte[], long, int)
+     */
+    public static void putBits(
+            Endianness endianness,
+            long value,
+            byte[] target,
+            long bitOffset,
+            int bitCount )
+    {
+        checkBits( target.length, bitOffset, bitCount );
+
+        endianness.putBits( value, target, bitOffset, bitCount );
+    }
+
+    /**
+     * Write a field of arbitrary bit width and offset.  The position of the
+     * passed buffer is not used and not modified.
+     *
+     * @param endianness One of the constants {@link #Big} or {@link #Little}.
+     * @param value The value to write.
+     * @param target The buffer to write to.
+     * @param bitOffset The absolute offset of the field in bits.
+     * @param bitCount The width of the field, 1 to 64.
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the buffer's
+     * limit.
+     * @see #putBits(Endianness, long, byte[], long, int)
+     */
+    public static void putBits(
+            Endianness endianness,
+            long value,
+            ByteBuffer target,
+            long bitOffset,
+            int bitCount )
+    {
+        checkBits( target, bitOffset, bitCount );
+
+        endianness.putBits( value, target, bitOffset, bitCount );
+    }
+
+    /**
+     * Check the arguments of a bit field access.
+     *
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the buffer's
+     * limit.
+     */
+    static void checkBits( ByteBuffer bytes, long bitOffset, int bitCount )
+    {
+        checkBits( bytes.limit(), bitOffset, bitCount );
+    }
+
+    /**
+     * Check the arguments of a bit field access.
+     *
+     * @param byteLength The number of accessible bytes.
+     * @throws IllegalArgumentException If the bit count is out of range.
+     * @throws IndexOutOfBoundsException If the field exceeds the passed
+     * length.
+     */
+    static void checkBits( int byteLength, long bitOffset, int bitCount )
+    {
+        if ( bitCount < 1 || bitCount > Long.SIZE )
+            throw new IllegalArgumentException(
+                    "bitCount not in [1.." + Long.SIZE + "]: " + bitCount + "." );
+
+        long available = (long)byteLength * Byte.SIZE;
+
+        if ( bitOffset < 0 || bitOffset > available - bitCount )
+            throw new IndexOutOfBoundsException( String.format(
+                    "Bits %d..%d not in buffer of %d bits.",
+                    bitOffset,
+                    bitOffset + bitCount - 1,
+                    available ) );
+    }
+
     /**
      * Compute the bitmask for the passed bit length and perform a range check
      * for the value.
@@ -333,33 +729,12 @@ public class IntegerUtil
     static public byte[] parse( String spayload )
             throws NumberFormatException
     {
-        spayload = spayload.toLowerCase();
-
-        // Remove hex prefix.
-        if ( spayload.startsWith( "0x" ) )
-            spayload = spayload.substring( 2 );
-
-        if ( (spayload.length() & 1) != 0 )
-            throw new NumberFormatException( String.format(
-                    "Even number of digits required in '%s'. Count is %d.",
-                    spayload,
-                    spayload.length() ) );
-
-        int numberOfBytes = spayload.length() / 2;
-
-        byte[] result = new byte[ numberOfBytes ];
+        // Skip hex prefix.
+        int start = spayload.startsWith( "0x" ) || spayload.startsWith( "0X" ) ?
+                2 :
+                0;
 
-        for ( int i = 0 ; i < numberOfBytes ; i++ )
-        {
-            // Two hex digits must fit into a byte.  Note that
-            // Byte.parseByte( x, 16 ) cannot parse numbers
-            // above 128. Fails with 88, AA, etc.
-            result[i] = (byte)Integer.parseInt(
-                    spayload.substring( i*2, (i*2) + 2 ),
-                    16 );
-        }
-
-        return result;
+        return HexCodec.decode( spayload, start, spayload.length() );
     }
 
     /**
@@ -406,14 +781,24 @@ public class IntegerUtil
      */
     public static String toHexString ( byte[] array )
     {
-        List<String> strings = new ArrayList<>( array.length );
+        if ( array.length == 0 )
+            return StringUtil.EMPTY_STRING;
 
-        for ( byte c : array )
+        // Each byte as '0x' and two digits, separated by a blank.
+        char[] result = new char[ array.length * 5 - 1 ];
+
+        for ( int i = 0 ; i < array.length ; i++ )
         {
-            strings.add( String.format( "0x%02x", c ));
+            int position = i * 5;
+
+            if ( i > 0 )
+                result[position - 1] = ' ';
+            result[position] = '0';
+            result[position + 1] = 'x';
+            HexCodec.encode( array, i, 1, result, position + 2 );
         }
 
-        return StringUtil.concatenate( " ", strings );
+        return new String( result );
     }
 
     /**
@@ -430,11 +815,35 @@ public class IntegerUtil
      */
     abstract static public class Endianness
     {
+        private final ByteOrder _order;
+
+        /**
+         * Byte array views used for the 16, 32 and 64 bit widths.
+         */
+        private final VarHandle _short;
+        private final VarHandle _int;
+        private final VarHandle _long;
+
         /**
          * Catch constructor.
          */
-        Endianness()
+        Endianness( ByteOrder order )
+        {
+            _order = order;
+            _short = MethodHandles.byteArrayViewVarHandle(
+                    short[].class, order );
+            _int = MethodHandles.byteArrayViewVarHandle(
+                    int[].class, order );
+            _long = MethodHandles.byteArrayViewVarHandle(
+                    long[].class, order );
+        }
+
+        /**
+         * @return The corresponding byte order.
+         */
+        public ByteOrder getByteOrder()
         {
+            return _order;
         }
 
         /**
@@ -444,7 +853,27 @@ public class IntegerUtil
          * @param startIdx The start index used if accessing the byte array.
          * @return The resulting long.
          */
-        abstract long toLong( byte[] bytes, int maxbits, int startIdx );
+        long toLong( byte[] bytes, int maxbits, int startIdx )
+        {
+            if ( available( bytes, maxbits, startIdx ) )
+            {
+                switch ( maxbits )
+                {
+                case Long.SIZE:
+                    return (long)_long.get( bytes, startIdx );
+                case Integer.SIZE:
+                    return Integer.toUnsignedLong(
+                            (int)_int.get( bytes, startIdx ) );
+                case Short.SIZE:
+                    return Short.toUnsignedLong(
+                            (short)_short.get( bytes, startIdx ) );
+                default:
+                    break;
+                }
+            }
+
+            return toLongBytewise( bytes, maxbits, startIdx );
+        }
 
         /**
          * Create a byte array from the passed integer value.
@@ -454,13 +883,105 @@ public class IntegerUtil
          * @param startIdx The start index used when writing the result into
          * the buffer.
          */
-        abstract void fromLong( long value, int validBits, byte[] target, int startIdx );
+        void fromLong( long value, int validBits, byte[] target, int startIdx )
+        {
+            if ( available( target, validBits, startIdx ) )
+            {
+                switch ( validBits )
+                {
+                case Long.SIZE:
+                    _long.set( target, startIdx, value );
+                    return;
+                case Integer.SIZE:
+                    _int.set( target, startIdx, (int)value );
+                    return;
+                case Short.SIZE:
+                    _short.set( target, startIdx, (short)value );
+                    return;
+                default:
+                    break;
+                }
+            }
+
+            fromLongBytewise( value, validBits, target, startIdx );
+        }
+
+        void toInts( byte[] source, int sourceIdx, int[] target, int targetIdx, int count )
+        {
+            for ( int i = 0 ; i < count ; i++ )
+                target[targetIdx + i] =
+                    (int)_int.get( source, sourceIdx + i * Integer.BYTES );
+        }
+
+        void toLongs( byte[] source, int sourceIdx, long[] target, int targetIdx, int count )
+        {
+            for ( int i = 0 ; i < count ; i++ )
+                target[targetIdx + i] =
+                    (long)_long.get( source, sourceIdx + i * Long.BYTES );
+        }
+
+        void fromInts( int[] source, int sourceIdx, int count, byte[] target, int targetIdx )
+        {
+            for ( int i = 0 ; i < count ; i++ )
+                _int.set( target, targetIdx + i * Integer.BYTES, source[sourceIdx + i] );
+        }
+
+        void fromLongs( long[] source, int sourceIdx, int count, byte[] target, int targetIdx )
+        {
+            for ( int i = 0 ; i < count ; i++ )
+                _long.set( target, targetIdx + i * Long.BYTES, source[sourceIdx + i] );
+        }
+
+        /**
+         * Check if the passed buffer holds all bytes of a value.
+         */
+        private static boolean available( byte[] bytes, int bits, int startIdx )
+        {
+            return startIdx >= 0 && bytes.length - startIdx >= bits / Byte.SIZE;
+        }
+
+        /**
+         * Read a bit field.  The arguments are checked by the caller.
+         * @see IntegerUtil#getBits(Endianness, ByteBuffer, long, int)
+         */
+        abstract long getBits( ByteBuffer bytes, long bitOffset, int bitCount );
+
+        /**
+         * Write a bit field.  The arguments are checked by the caller.
+         * @see IntegerUtil#putBits(Endianness, long, ByteBuffer, long, int)
+         */
+        abstract void putBits( long value, ByteBuffer target, long bitOffset, int bitCount );
+
+        /**
+         * Read a bit field.  The arguments are checked by the caller.
+         * @see IntegerUtil#getBits(Endianness, byte[], long, int)
+         */
+        abstract long getBits( byte[] bytes, long bitOffset, int bitCount );
+
+        /**
+         * Write a bit field.  The arguments are checked by the caller.
+         * @see IntegerUtil#putBits(Endianness, long, byte[], long, int)
+         */
+        abstract void putBits( long value, byte[] target, long bitOffset, int bitCount );
+
+        /**
+         * Make a primitive long byte by byte.  Supports all bit widths and
+         * buffers holding less bytes than requested.
+         * @see #toLong(byte[], int, int)
+         */
+        abstract long toLongBytewise( byte[] bytes, int maxbits, int startIdx );
+
+        /**
+         * Create a byte array byte by byte.  Supports all bit widths.
+         * @see #fromLong(long, int, byte[], int)
+         */
+        abstract void fromLongBytewise( long value, int validBits, byte[] target, int startIdx );
     }
 
     /**
      * Constant used with the byte array integer conversions for Little endian.
      */
-    public static final Endianness Little = new Endianness()
+    public static final Endianness Little = new Endianness( ByteOrder.LITTLE_ENDIAN )
     {
         /**
          * Converts the passed bytes to a long assuming little endian byte order.
@@ -471,7 +992,7 @@ public class IntegerUtil
          * long( b8 b7 b6 b5 b4 b3 b2 b1 b0 )
          */
         @Override
-        public long toLong( byte[] bytes, int maxbits, int startIdx )
+        long toLongBytewise( byte[] bytes, int maxbits, int startIdx )
         {
             long result = 0;
 
@@ -497,7 +1018,7 @@ public class IntegerUtil
          * Bytes[ 0x4d 0x3c 0x2b 0x1a 0x00 0x00 0x00 0x00 ]
          */
         @Override
-        public void fromLong( long longo, int bits, byte[] target, int startIdx )
+        void fromLongBytewise( long longo, int bits, byte[] target, int startIdx )
         {
             int validBytes = bits / Byte.SIZE;
 
@@ -510,6 +1031,77 @@ public class IntegerUtil
             }
         }
 
+        @Override
+        long getBits( ByteBuffer bytes, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            long result = (bytes.get( index++ ) & 0xff) >>> bit;
+
+            for ( int done = Byte.SIZE - bit ; done < bitCount ; done += Byte.SIZE )
+                result |= (long)(bytes.get( index++ ) & 0xff) << done;
+
+            return result & getMask( bitCount );
+        }
+
+        @Override
+        void putBits( long value, ByteBuffer target, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            for ( int done = 0 ; done < bitCount ; )
+            {
+                int count = Math.min( Byte.SIZE - bit, bitCount - done );
+                int mask = ((1 << count) - 1) << bit;
+                int bits = (int)(value >>> done) << bit;
+
+                target.put(
+                        index,
+                        (byte)((target.get( index ) & ~mask) | (bits & mask)) );
+
+                done += count;
+                index++;
+                bit = 0;
+            }
+        }
+
+        @Override
+        long getBits( byte[] bytes, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            long result = (bytes[index++] & 0xff) >>> bit;
+
+            for ( int done = Byte.SIZE - bit ; done < bitCount ; done += Byte.SIZE )
+                result |= (long)(bytes[index++] & 0xff) << done;
+
+            return result & getMask( bitCount );
+        }
+
+        @Override
+        void putBits( long value, byte[] target, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            for ( int done = 0 ; done < bitCount ; )
+            {
+                int count = Math.min( Byte.SIZE - bit, bitCount - done );
+                int mask = ((1 << count) - 1) << bit;
+                int bits = (int)(value >>> done) << bit;
+
+                target[index] =
+                        (byte)((target[index] & ~mask) | (bits & mask));
+
+                done += count;
+                index++;
+                bit = 0;
+            }
+        }
+
         @Override
         public String toString()
         {
@@ -520,33 +1112,124 @@ public class IntegerUtil
     /**
      * Constant used with the byte array integer conversions for Big endian.
      */
-    public static final Endianness Big = new Endianness()
+    public static final Endianness Big = new Endianness( ByteOrder.BIG_ENDIAN )
     {
-        // Implementation note: Implement this in terms
-        // of the little endian stuff.  Results in this being slightly
-        // less efficient than the Little endian routines.
+        // Implementation note: The uncommon bit widths are implemented in
+        // terms of the little endian stuff.  The 16, 32 and 64 bit widths
+        // use the byte array views of the base class.
 
         @Override
-        public long toLong( byte[] bytes, int maxbits, int startIdx )
+        long toLongBytewise( byte[] bytes, int maxbits, int startIdx )
         {
             int validBits = (bytes.length - startIdx) * Byte.SIZE;
             if ( maxbits > validBits )
                 maxbits = validBits;
 
-            long result = Long.reverseBytes( Little.toLong( bytes, maxbits, startIdx ) );
+            long result = Long.reverseBytes( Little.toLongBytewise( bytes, maxbits, startIdx ) );
             result >>>= Long.SIZE - maxbits;
 
             return result;
         }
 
         @Override
-        public void fromLong( long longo, int bits, byte[] target, int startIdx )
+        void fromLongBytewise( long longo, int bits, byte[] target, int startIdx )
         {
             long intermediate = Long.reverseBytes( longo );
 
             intermediate >>= Long.SIZE - bits;
 
-            Little.fromLong( intermediate, bits, target, startIdx );
+            Little.fromLongBytewise( intermediate, bits, target, startIdx );
+        }
+
+        @Override
+        long getBits( ByteBuffer bytes, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int available = Byte.SIZE - (int)(bitOffset & 0b111);
+
+            long result = bytes.get( index++ ) & (0xff >>> (Byte.SIZE - available));
+
+            if ( bitCount <= available )
+                return result >>> (available - bitCount);
+
+            int remaining = bitCount - available;
+
+            for ( ; remaining >= Byte.SIZE ; remaining -= Byte.SIZE )
+                result = (result << Byte.SIZE) | (bytes.get( index++ ) & 0xff);
+
+            if ( remaining > 0 )
+                result = (result << remaining) |
+                    ((bytes.get( index ) & 0xff) >>> (Byte.SIZE - remaining));
+
+            return result;
+        }
+
+        @Override
+        void putBits( long value, ByteBuffer target, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            for ( int remaining = bitCount ; remaining > 0 ; )
+            {
+                int count = Math.min( Byte.SIZE - bit, remaining );
+                int shift = Byte.SIZE - bit - count;
+                int mask = ((1 << count) - 1) << shift;
+                int bits = (int)(value >>> (remaining - count)) << shift;
+
+                target.put(
+                        index,
+                        (byte)((target.get( index ) & ~mask) | (bits & mask)) );
+
+                remaining -= count;
+                index++;
+                bit = 0;
+            }
+        }
+
+        @Override
+        long getBits( byte[] bytes, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int available = Byte.SIZE - (int)(bitOffset & 0b111);
+
+            long result = bytes[index++] & (0xff >>> (Byte.SIZE - available));
+
+            if ( bitCount <= available )
+                return result >>> (available - bitCount);
+
+            int remaining = bitCount - available;
+
+            for ( ; remaining >= Byte.SIZE ; remaining -= Byte.SIZE )
+                result = (result << Byte.SIZE) | (bytes[index++] & 0xff);
+
+            if ( remaining > 0 )
+                result = (result << remaining) |
+                    ((bytes[index] & 0xff) >>> (Byte.SIZE - remaining));
+
+            return result;
+        }
+
+        @Override
+        void putBits( long value, byte[] target, long bitOffset, int bitCount )
+        {
+            int index = (int)(bitOffset >>> 3);
+            int bit = (int)(bitOffset & 0b111);
+
+            for ( int remaining = bitCount ; remaining > 0 ; )
+            {
+                int count = Math.min( Byte.SIZE - bit, remaining );
+                int shift = Byte.SIZE - bit - count;
+                int mask = ((1 << count) - 1) << shift;
+                int bits = (int)(value >>> (remaining - count)) << shift;
+
+                target[index] =
+                        (byte)((target[index] & ~mask) | (bits & mask));
+
+                remaining -= count;
+                index++;
+                bit = 0;
+            }
         }
 
         @Override
@@ -0,0 +1,197 @@
+/* $Id$
+ *
+ * Utilities
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util;
+
+import java.util.Objects;
+
+/**
+ * Splits a whitespace delimited and quoted string as used on command
+ * lines into its elements without creating intermediate objects.  The
+ * tokens follow the rules of {@link StringUtil#splitQuoted(char, String)}.
+ * <p>
+ * Each call to {@link #next()} advances to the next token.  If the
+ * token's content is a contiguous range of the source string, this range is
+ * available via {@link #begin()} and {@link #end()}.  Only tokens mixing
+ * quoted and unquoted parts like {@code ab"c d"} are not contiguous.
+ * {@link #token()} returns the token in all cases.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public final class QuotedTokenizer
+{
+    private final char _quoteChar;
+    private final String _source;
+
+    /**
+     * The scan position.
+     */
+    private int _position;
+
+    /**
+     * The range of the current token in the source string including
+     * quote characters.
+     */
+    private int _rawBegin;
+    private int _rawEnd;
+
+    /**
+     * The range of the current token's content.  Only valid if
+     * {@link #_contiguous} is true.
+     */
+    private int _begin;
+    private int _end;
+    private boolean _contiguous;
+
+    /**
+     * Create an instance.
+     *
+     * @param quoteChar The quote character.
+     * @param source The string to split.
+     */
+    public QuotedTokenizer( char quoteChar, String source )
+    {
+        _quoteChar = quoteChar;
+        _source = Objects.requireNonNull( source );
+    }
+
+    /**
+     * Advance to the next token.
+     *
+     * @return {@code true} if a token is available, {@code false} if
+     * the source string is exhausted.
+     */
+    public boolean next()
+    {
+        int length = _source.length();
+
+        while ( _position < length && Character.isWhitespace( _source.charAt( _position ) ) )
+            _position++;
+
+        if ( _position == length )
+            return false;
+
+        _rawBegin = _position;
+        _begin = _end = -1;
+        _contiguous = true;
+
+        boolean inQuotes = false;
+
+        for ( ; _position < length ; _position++ )
+        {
+            char c = _source.charAt( _position );
+
+            if ( c == _quoteChar )
+            {
+                inQuotes = !inQuotes;
+
+                if ( ! inQuotes )
+                {
+                    // End of the quoted sequence ends the token.
+                    _position++;
+                    break;
+                }
+                continue;
+            }
+
+            if ( ! inQuotes && Character.isWhitespace( c ) )
+                break;
+
+            if ( _begin == -1 )
+                _begin = _end = _position;
+            else if ( _end != _position )
+                _contiguous = false;
+
+            _end = _position + 1;
+        }
+
+        _rawEnd = _position;
+
+        if ( _begin == -1 )
+        {
+            // An empty quoted token.
+            _begin = _end = _rawEnd;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the content of the current token is the range
+     * {@link #begin()} to {@link #end()} of the source string.
+     */
+    public boolean isContiguous()
+    {
+        return _contiguous;
+    }
+
+    /**
+     * @return The index of the first character of the current token.
+     * Only valid if the token is contiguous.
+     */
+    public int begin()
+    {
+        return _begin;
+    }
+
+    /**
+     * @return The index after the last character of the current token.
+     * Only valid if the token is contiguous.
+     */
+    public int end()
+    {
+        return _end;
+    }
+
+    /**
+     * @return The source string.
+     */
+    public String source()
+    {
+        return _source;
+    }
+
+    /**
+     * @return The current token.
+     */
+    public String token()
+    {
+        if ( _contiguous )
+            return _source.substring( _begin, _end );
+
+        var result = new StringBuilder( _rawEnd - _rawBegin );
+
+        for ( int i = _rawBegin ; i < _rawEnd ; i++ )
+        {
+            char c = _source.charAt( i );
+
+            if ( c != _quoteChar )
+                result.append( c );
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Count the tokens in the passed string.
+     *
+     * @param quoteChar The quote character.
+     * @param source The string to split.
+     * @return The number of tokens.
+     */
+    public static int count( char quoteChar, String source )
+    {
+        var tokenizer = new QuotedTokenizer( quoteChar, source );
+
+        int result = 0;
+        while ( tokenizer.next() )
+            result++;
+
+        return result;
+    }
+}
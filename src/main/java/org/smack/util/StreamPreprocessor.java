@@ -13,6 +13,17 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Uses a Stream and resolves C-like preprocessor commands.
@@ -41,13 +52,155 @@ public class StreamPreprocessor extends InputStream{
          * @throws IOException In case of an error.
          */
         Resolver reposition(String name) throws IOException;
+
+        /**
+         * Get a name identifying a resource independent of the Resolver's
+         * position.  Used to recognize repeated includes of the same resource.
+         * Without a canonical name a resource is identified by the Resolver
+         * and the passed name.  Since repositioned Resolvers are usually
+         * different instances, a resource included from different positions
+         * is then read once per position.
+         * @param name the name of the resource (kind of URI but not a real URI).
+         * @return The canonical name or null if not known.  The default
+         * implementation returns null.
+         * @throws IOException In case of an error.
+         */
+        default String canonicalName(String name) throws IOException {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves names as paths relative to a directory.  Repositioned
+     * instances resolve relative to the directory of the included file.
+     * The canonical name is the real path, so a file is read only once
+     * per run, independent of the path used to include it.
+     */
+    public static class FileResolver implements Resolver {
+        private final Path directory;
+
+        /**
+         * Create an instance.
+         * @param directory The directory relative names are resolved against.
+         */
+        public FileResolver(Path directory) {
+            this.directory = Objects.requireNonNull(directory);
+        }
+
+        @Override
+        public InputStream resolveName(String name) throws IOException {
+            return Files.newInputStream(directory.resolve(name));
+        }
+
+        @Override
+        public Resolver reposition(String name) throws IOException {
+            Path parent = directory.resolve(name).getParent();
+
+            return parent == null ?
+                    this :
+                    new FileResolver(parent);
+        }
+
+        @Override
+        public String canonicalName(String name) throws IOException {
+            return directory.resolve(name).toRealPath().toString();
+        }
     }
 
     /**
-     * The InputStream from the resource handily wrapped.
+     * Identifies an included resource.
+     */
+    private static final class Key {
+        /**
+         * The canonical name or the Resolver and the name.
+         */
+        private final Object id;
+
+        /**
+         * The name used in messages.
+         */
+        private final String name;
+
+        Key(Resolver res, String name) throws IOException {
+            String canonical = res.canonicalName(name);
+
+            if (canonical != null) {
+                this.id = canonical;
+                this.name = canonical;
+            } else {
+                this.id = Arrays.asList(res, name);
+                this.name = name;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && id.equals(((Key)obj).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * The include state shared by a preprocessor and the preprocessors of
+     * its includes.
+     */
+    private static class Includes {
+        /**
+         * If true each resource is included only once.
+         */
+        final boolean once;
+
+        /**
+         * The preprocessed content of the resources.
+         */
+        final Map<Key,byte[]> cache = new HashMap<>();
+
+        /**
+         * The included resources.
+         */
+        final Set<Key> included = new HashSet<>();
+
+        /**
+         * The resources currently included.
+         */
+        final Deque<Key> chain = new ArrayDeque<>();
+
+        Includes(boolean once) {
+            this.once = once;
+        }
+    }
+
+    /**
+     * The include state of this run.
+     */
+    final private Includes includes;
+
+    /**
+     * The size of the initial read buffer.
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The InputStream from the resource handily wrapped.  Only used if the
+     * character set is not ASCII compatible, null otherwise.
      */
     final private LineNumberReader lnr;
 
+    /**
+     * The raw stream to process.  Read in bulk if the character set is
+     * ASCII compatible.
+     */
+    final private InputStream in;
+
     /**
      * The Resolver to get other {@link #InputStream}s from a resource name.
      */
@@ -58,6 +211,42 @@ public class StreamPreprocessor extends InputStream{
      */
     final private Charset cs;
 
+    /**
+     * The encoded line separator.
+     */
+    final private byte[] separator;
+
+    /**
+     * The position in {@link #separator} of the next byte to return.  If
+     * equal to the separator length no separator is pending.
+     */
+    private int separatorPosition;
+
+    /**
+     * The read buffer holding the raw data at positions {@link #position}
+     * to {@link #limit}.
+     */
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * True while the bytes of a line are passed through.
+     */
+    private boolean inLine;
+
+    /**
+     * True if the last line ended with a carriage return.  A following
+     * line feed is part of the line terminator.
+     */
+    private boolean skipLf;
+
+    /**
+     * Used by the single byte read.
+     */
+    final private byte[] single = new byte[1];
+
     /**
      * If this is not null read() will return {@link #nextHierarchy#read()}
      */
@@ -79,31 +268,55 @@ public class StreamPreprocessor extends InputStream{
      * @param cs The character set to use in character transformations.
      */
     public StreamPreprocessor(InputStream is, Resolver res, Charset cs) {
+        this(is,res,cs,false);
+    }
+
+    /**
+     * Create an instance based on an explicitly defined character set.
+     * The preprocessed content of each included resource is read only
+     * once and reused for repeated includes.
+     * @param is InputStream to process.
+     * @param res The Resolver used to resolve include directives.
+     * @param cs The character set to use in character transformations.
+     * @param includeOnce If true, repeated includes of a resource are
+     * ignored.
+     */
+    public StreamPreprocessor(InputStream is, Resolver res, Charset cs, boolean includeOnce) {
+        this(is,res,cs,new Includes(includeOnce));
+    }
+
+    private StreamPreprocessor(InputStream is, Resolver res, Charset cs, Includes includes) {
+        this.includes = includes;
         this.cs = cs;
         this.res = res;
-        lnr = new LineNumberReader(new InputStreamReader(is,cs));
+        separator = System.lineSeparator().getBytes(cs);
+        separatorPosition = separator.length;
+
+        if ( CharsetUtil.isAsciiCompatible( cs ) )
+        {
+            in = is;
+            lnr = null;
+            buffer = new byte[BUFFER_SIZE];
+        }
+        else
+        {
+            in = null;
+            lnr = new LineNumberReader(new InputStreamReader(is,cs));
+        }
     }
 
     @Override
     public int read() throws IOException
     {
-        if(currentInputStream != null){
-            int result = currentInputStream.read();
-            if(result != -1){
-                return result;
-            }
-            currentInputStream.close();
-            currentInputStream = null;
-        }
+        int count;
+        do
+            count = read( single, 0, 1 );
+        while ( count == 0 );
 
-        String currentLineStr = lnr.readLine();
-        if(currentLineStr == null)
+        if ( count == -1 )
             return -1;
-        currentLineStr += System.lineSeparator();
-
-        currentInputStream = preProcess(currentLineStr);
-        return currentInputStream.read();
 
+        return single[0] & 0xff;
     }
 
     /**
@@ -130,9 +343,11 @@ public class StreamPreprocessor extends InputStream{
 
     /**
      * Uses the {@link #Resolver} (res) to set the <code>nextHierarchy</code> attribute.
+     * The preprocessed content is cached for the run.
      *
      * @param includeLine the raw line starting with #include (ignoring what is before "#include ").
-     * @throws IOException if an I/O Exception occurs while loading the resource.
+     * @throws IOException if an I/O Exception occurs while loading the resource or
+     *                     if the include is cyclic.
      */
     private InputStream pPComandInclude(String includeLine) throws IOException {
 
@@ -146,9 +361,44 @@ public class StreamPreprocessor extends InputStream{
 
         name = StringUtil.trim( name, "\"" );
 
-        InputStream newStream = res.resolveName(name);
-        Resolver newResolver = res.reposition(name);
-        return new StreamPreprocessor(newStream, newResolver);
+        Key key = new Key(res, name);
+
+        if ( includes.once && ! includes.included.add( key ) )
+            return InputStream.nullInputStream();
+
+        if ( includes.chain.contains( key ) )
+        {
+            throw new IOException( String.format(
+                    "Include cycle: %s -> %s",
+                    includes.chain.stream()
+                        .map( Key::toString )
+                        .collect( Collectors.joining( " -> " ) ),
+                    key ) );
+        }
+
+        byte[] content = includes.cache.get( key );
+
+        if ( content == null )
+        {
+            includes.chain.addLast( key );
+            try (
+                InputStream newStream = res.resolveName(name);
+                var nested = new StreamPreprocessor(
+                        newStream,
+                        res.reposition(name),
+                        cs,
+                        includes ) )
+            {
+                content = nested.readAllBytes();
+            }
+            finally
+            {
+                includes.chain.removeLast();
+            }
+            includes.cache.put( key, content );
+        }
+
+        return new ByteArrayInputStream( content );
     }
 
     @Override
@@ -172,20 +422,216 @@ public class StreamPreprocessor extends InputStream{
      * The base class propagates an exception only when reading the first
      * byte and ignores any follow-up exceptions.  We do not want this
      * and propagate all exceptions.
+     * <p>
+     * Lines not holding a directive are copied without character
+     * conversion.</p>
      */
     @Override
     public int read( byte[] b, int off, int len ) throws IOException
     {
-        for ( int i = 0 ; i < len ; i++ )
+        Objects.checkFromIndexSize( off, len, b.length );
+
+        int count = 0;
+
+        while ( count < len )
+        {
+            if ( currentInputStream != null )
+            {
+                int read = currentInputStream.read( b, off+count, len-count );
+                if ( read == -1 )
+                {
+                    currentInputStream.close();
+                    currentInputStream = null;
+                }
+                else
+                    count += read;
+                continue;
+            }
+
+            if ( separatorPosition < separator.length )
+            {
+                int toCopy = Math.min(
+                        len-count,
+                        separator.length - separatorPosition );
+                System.arraycopy(
+                        separator, separatorPosition, b, off+count, toCopy );
+                separatorPosition += toCopy;
+                count += toCopy;
+                continue;
+            }
+
+            if ( inLine )
+            {
+                count += copyLine( b, off+count, len-count );
+                continue;
+            }
+
+            if ( ! nextLine() )
+                return count > 0 ? count : -1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Copy bytes of the current line up to its terminator.  If the
+     * terminator is reached the line separator is scheduled.
+     *
+     * @return The number of bytes copied.
+     */
+    private int copyLine( byte[] b, int off, int len ) throws IOException
+    {
+        if ( ! fill() )
+        {
+            // The last line has no terminator.
+            endLine();
+            return 0;
+        }
+
+        int end = Math.min( limit, position + len );
+        int i = position;
+
+        while ( i < end && buffer[i] != '\n' && buffer[i] != '\r' )
+            i++;
+
+        int result = i - position;
+        System.arraycopy( buffer, position, b, off, result );
+        position = i;
+
+        if ( i < limit && (buffer[i] == '\n' || buffer[i] == '\r') )
+        {
+            skipLf = buffer[i] == '\r';
+            position++;
+            endLine();
+        }
+
+        return result;
+    }
+
+    private void endLine()
+    {
+        inLine = false;
+        separatorPosition = 0;
+    }
+
+    /**
+     * Start the next line.  If the line holds a directive it is processed,
+     * otherwise the line is passed through.
+     *
+     * @return false if no more lines are available.
+     */
+    private boolean nextLine() throws IOException
+    {
+        if ( lnr != null )
+        {
+            String currentLineStr = lnr.readLine();
+            if(currentLineStr == null)
+                return false;
+            currentLineStr += System.lineSeparator();
+
+            currentInputStream = preProcess(currentLineStr);
+            return true;
+        }
+
+        if ( skipLf )
+        {
+            if ( ! fill() )
+                return false;
+            if ( buffer[position] == '\n' )
+                position++;
+            skipLf = false;
+        }
+
+        if ( ! fill() )
+            return false;
+
+        // Find the first character that is not white space.  Offsets are
+        // relative to the position since reading more data compacts the
+        // buffer.
+        int i = 0;
+        while ( true )
+        {
+            if ( position + i == limit && ! readMore() )
+                break;
+            int c = buffer[position + i] & 0xff;
+            if ( c == '\n' || c == '\r' || c > ' ' )
+                break;
+            i++;
+        }
+
+        if ( position + i == limit || buffer[position + i] != '#' )
+        {
+            inLine = true;
+            return true;
+        }
+
+        // A directive candidate, decode the line.
+        while ( position + i < limit || readMore() )
+        {
+            if ( buffer[position + i] == '\n' || buffer[position + i] == '\r' )
+                break;
+            i++;
+        }
+
+        String currentLineStr = new String( buffer, position, i, cs );
+        position += i;
+        if ( position < limit )
+        {
+            skipLf = buffer[position] == '\r';
+            position++;
+        }
+
+        currentInputStream = preProcess( currentLineStr + System.lineSeparator() );
+        return true;
+    }
+
+    /**
+     * Ensure that the buffer holds data.
+     *
+     * @return false on end of stream.
+     */
+    private boolean fill() throws IOException
+    {
+        if ( position < limit )
+            return true;
+
+        position = limit = 0;
+
+        return readMore();
+    }
+
+    /**
+     * Read more data into the buffer, keeping the data from the current
+     * position.  Grows the buffer if needed.
+     *
+     * @return false on end of stream.
+     */
+    private boolean readMore() throws IOException
+    {
+        if ( eof )
+            return false;
+
+        if ( position > 0 )
         {
-            int c = read();
+            System.arraycopy( buffer, position, buffer, 0, limit - position );
+            limit -= position;
+            position = 0;
+        }
+        if ( limit == buffer.length )
+            buffer = Arrays.copyOf( buffer, buffer.length * 2 );
 
-            if ( c == -1 )
-                return i > 0 ? i : -1;
+        int read;
+        do
+            read = in.read( buffer, limit, buffer.length - limit );
+        while ( read == 0 );
 
-            b[ i+off ] = (byte)c;
+        if ( read == -1 )
+        {
+            eof = true;
+            return false;
         }
 
-        return len;
+        limit += read;
+        return true;
     }
 }
@@ -7,7 +7,6 @@
  */
 package org.smack.util;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -390,54 +389,15 @@ public class StringUtil
      */
     public static String[] splitQuoted( char quoteChar, String string )
     {
-        // See also http://stackoverflow.com/questions/10695143/split-a-quoted-string-with-a-delimiter
-        // for a sketch of solving the same with regular expressions.  Can be made workable, but is even less
-        // understandable.
-
-        boolean inDoubleQuotes = false;
-
-        ArrayList<String> result = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-
-        for ( char c : string.toCharArray() )
-        {
-            boolean isDoubleQuote = c == quoteChar;
-
-            if ( isDoubleQuote )
-            {
-                inDoubleQuotes = !inDoubleQuotes;
-
-                if ( ! inDoubleQuotes )
-                {
-                    // End of the quoted sequence.
-                    result.add( sb.toString() );
-                    sb.setLength( 0 );
-                }
-                continue;
-            }
-
-            if ( inDoubleQuotes )
-            {
-                sb.append( c );
-                continue;
-            }
-            else if ( Character.isWhitespace( c ) )
-            {
-                if ( sb.length() > 0 )
-                {
-                    result.add( sb.toString() );
-                    sb.setLength( 0 );
-                }
-                continue;
-            }
-
-            sb.append( c );
-        }
+        var result =
+                new String[ QuotedTokenizer.count( quoteChar, string ) ];
+        var tokenizer =
+                new QuotedTokenizer( quoteChar, string );
 
-        if ( sb.length() > 0 || inDoubleQuotes )
-            result.add( sb.toString() );
+        for ( int i = 0 ; tokenizer.next() ; i++ )
+            result[i] = tokenizer.token();
 
-        return result.toArray( new String[ result.size()] );
+        return result;
     }
 
     /**
@@ -454,26 +414,6 @@ public class StringUtil
         return splitQuoted( QUOTE_CHAR, toSplit );
     }
 
-    private static byte[] fromHexImpl( String string )
-    {
-        if ( MathUtil.isOdd( string.length() ))
-            throw new IllegalArgumentException( "Length is odd: " + string );
-
-        var result = new byte[ string.length() / 2 ];
-
-        for ( int i = 0 ; i < result.length ; i++ )
-        {
-            int stringIndex =
-                    i * 2;
-            String pair =
-                    string.substring( stringIndex, stringIndex+2 );
-            result[i] = (byte)
-                    Short.parseShort( pair, 16 );
-        }
-
-        return result;
-    }
-
     /**
      * Convert an array to a hex string.  The resulting string consists of
      * an even number of hex figures, for each input byte two.  Example is
@@ -481,16 +421,11 @@ public class StringUtil
      *
      * @param array The array to convert.
      * @return The result string.
+     * @see HexCodec
      */
     public static String toHex( byte[] array )
     {
-        var result =
-                new StringBuilder( array.length * 2 );
-
-        for ( Byte c : array )
-            result.append( String.format( "%02x", c ) );
-
-        return result.toString();
+        return HexCodec.encode( array );
     }
 
     /**
@@ -504,7 +439,7 @@ public class StringUtil
     {
         try
         {
-            return fromHexImpl( string );
+            return HexCodec.decode( string );
         }
         catch( Exception e )
         {
@@ -10,6 +10,10 @@ import java.awt.Color;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
+import org.smack.util.converters.StringConverter.ToDoubleConverter;
+import org.smack.util.converters.StringConverter.ToIntConverter;
+import org.smack.util.converters.StringConverter.ToLongConverter;
+
 class ConverterUtils
 {
     /**
@@ -65,4 +69,253 @@ class ConverterUtils
             return null;
         }
     }
+
+    /**
+     * Decodes a long value from a character range.  Accepts the same syntax
+     * as {@link Long#decode(String)} without creating intermediate objects.
+     *
+     * @param s The characters to decode.
+     * @param begin The index of the first character.
+     * @param end The index after the last character.
+     * @return The decoded value.
+     * @throws NumberFormatException If the range does not hold a number.
+     */
+    static long decodeLong( CharSequence s, int begin, int end )
+    {
+        if ( begin >= end )
+            throw new NumberFormatException( "Zero length string" );
+
+        int index = begin;
+        boolean negative = false;
+
+        char first = s.charAt( index );
+        if ( first == '-' )
+        {
+            negative = true;
+            index++;
+        }
+        else if ( first == '+' )
+            index++;
+
+        int radix = 10;
+        if ( startsWith( s, index, end, "0x" ) || startsWith( s, index, end, "0X" ) )
+        {
+            index += 2;
+            radix = 16;
+        }
+        else if ( startsWith( s, index, end, "#" ) )
+        {
+            index++;
+            radix = 16;
+        }
+        else if ( startsWith( s, index, end, "0" ) && end - index > 1 )
+        {
+            index++;
+            radix = 8;
+        }
+
+        if ( index < end && (s.charAt( index ) == '-' || s.charAt( index ) == '+') )
+            throw new NumberFormatException(
+                    "Sign character in wrong position: " + s.subSequence( begin, end ) );
+
+        long magnitude =
+                Long.parseUnsignedLong( s, index, end, radix );
+
+        if ( negative )
+        {
+            if ( Long.compareUnsigned( magnitude, Long.MIN_VALUE ) > 0 )
+                throw new NumberFormatException(
+                        "Value out of range: " + s.subSequence( begin, end ) );
+            return -magnitude;
+        }
+
+        if ( magnitude < 0 )
+            throw new NumberFormatException(
+                    "Value out of range: " + s.subSequence( begin, end ) );
+
+        return magnitude;
+    }
+
+    /**
+     * Decodes an int value from a character range.  Accepts the same syntax
+     * as {@link Integer#decode(String)} without creating intermediate objects.
+     *
+     * @param s The characters to decode.
+     * @param begin The index of the first character.
+     * @param end The index after the last character.
+     * @return The decoded value.
+     * @throws NumberFormatException If the range does not hold a number.
+     */
+    static int decodeInt( CharSequence s, int begin, int end )
+    {
+        long result = decodeLong( s, begin, end );
+
+        if ( result < Integer.MIN_VALUE || result > Integer.MAX_VALUE )
+            throw new NumberFormatException(
+                    "Value out of range: " + s.subSequence( begin, end ) );
+
+        return (int)result;
+    }
+
+    /**
+     * Exactly representable powers of ten.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22 };
+
+    /**
+     * Parses a double value from a character range.  Accepts the same syntax
+     * as {@link Double#parseDouble(String)}.  Plain decimal numbers with up to
+     * 15 significant digits and a small exponent are computed directly and
+     * exactly, everything else is passed to {@link Double#parseDouble(String)}.
+     *
+     * @param s The characters to parse.
+     * @param begin The index of the first character.
+     * @param end The index after the last character.
+     * @return The parsed value.
+     * @throws NumberFormatException If the range does not hold a number.
+     */
+    static double parseDouble( CharSequence s, int begin, int end )
+    {
+        int index = begin;
+        boolean negative = false;
+
+        if ( index < end && (s.charAt( index ) == '-' || s.charAt( index ) == '+') )
+            negative = s.charAt( index++ ) == '-';
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+
+        for ( ; index < end && isDigit( s.charAt( index ) ) ; index++, digits++ )
+        {
+            if ( mantissa != 0 || s.charAt( index ) != '0' )
+                significantDigits++;
+            mantissa = mantissa * 10 + (s.charAt( index ) - '0');
+        }
+        if ( index < end && s.charAt( index ) == '.' )
+        {
+            for ( index++ ; index < end && isDigit( s.charAt( index ) ) ; index++, digits++ )
+            {
+                if ( mantissa != 0 || s.charAt( index ) != '0' )
+                    significantDigits++;
+                mantissa = mantissa * 10 + (s.charAt( index ) - '0');
+                exponent--;
+            }
+        }
+        if ( digits > 0 && index < end && (s.charAt( index ) == 'e' || s.charAt( index ) == 'E') )
+        {
+            index++;
+            boolean negativeExponent = false;
+            if ( index < end && (s.charAt( index ) == '-' || s.charAt( index ) == '+') )
+                negativeExponent = s.charAt( index++ ) == '-';
+
+            int explicit = 0;
+            int exponentDigits = 0;
+            for ( ; index < end && isDigit( s.charAt( index ) ) && exponentDigits < 4 ; index++ )
+            {
+                explicit = explicit * 10 + (s.charAt( index ) - '0');
+                exponentDigits++;
+            }
+            if ( exponentDigits == 0 )
+                digits = 0;
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        if ( digits == 0 ||
+                index != end ||
+                significantDigits > 15 ||
+                exponent < -22 ||
+                exponent > 22 )
+        {
+            // Not simple, let the platform handle this.
+            return Double.parseDouble( s.subSequence( begin, end ).toString() );
+        }
+
+        double result = exponent < 0 ?
+                mantissa / POWERS_OF_TEN[-exponent] :
+                mantissa * POWERS_OF_TEN[exponent];
+
+        return negative ? -result : result;
+    }
+
+    private static boolean isDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Decodes ints, supports character ranges.
+     */
+    static final ToIntConverter DECODE_INT = new ToIntConverter()
+    {
+        @Override
+        public int convert( String s )
+        {
+            return decodeInt( s, 0, s.length() );
+        }
+
+        @Override
+        public int convert( String s, int begin, int end )
+        {
+            return decodeInt( s, begin, end );
+        }
+    };
+
+    /**
+     * Decodes longs, supports character ranges.
+     */
+    static final ToLongConverter DECODE_LONG = new ToLongConverter()
+    {
+        @Override
+        public long convert( String s )
+        {
+            return decodeLong( s, 0, s.length() );
+        }
+
+        @Override
+        public long convert( String s, int begin, int end )
+        {
+            return decodeLong( s, begin, end );
+        }
+    };
+
+    /**
+     * Parses doubles, supports character ranges.
+     */
+    static final ToDoubleConverter PARSE_DOUBLE = new ToDoubleConverter()
+    {
+        @Override
+        public double convert( String s )
+        {
+            return Double.parseDouble( s );
+        }
+
+        @Override
+        public double convert( String s, int begin, int end )
+        {
+            return parseDouble( s, begin, end );
+        }
+    };
+
+    private static boolean startsWith(
+            CharSequence s,
+            int begin,
+            int end,
+            String prefix )
+    {
+        if ( end - begin < prefix.length() )
+            return false;
+
+        for ( int i = 0 ; i < prefix.length() ; i++ )
+        {
+            if ( s.charAt( begin + i ) != prefix.charAt( i ) )
+                return false;
+        }
+
+        return true;
+    }
 }
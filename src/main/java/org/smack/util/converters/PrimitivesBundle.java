@@ -47,14 +47,14 @@ public class PrimitivesBundle extends StringConverterExtension
         registry.put( Byte.class, Byte::decode );
         registry.put( short.class, Short::decode );
         registry.put( Short.class, Short::decode );
-        registry.put( int.class, Integer::decode );
+        registry.putInt( ConverterUtils.DECODE_INT );
         registry.put( Integer.class, Integer::decode );
-        registry.put( long.class, Long::decode );
+        registry.putLong( ConverterUtils.DECODE_LONG );
         registry.put( Long.class, Long::decode );
         registry.put( float.class, Float::parseFloat );
         registry.put( Float.class, Float::parseFloat );
 
-        registry.put( double.class, Double::parseDouble );
+        registry.putDouble( ConverterUtils.PARSE_DOUBLE );
         registry.put( Double.class, Double::parseDouble );
         // char ...
 
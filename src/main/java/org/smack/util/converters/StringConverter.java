@@ -8,15 +8,16 @@ package org.smack.util.converters;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.smack.util.QuotedTokenizer;
 import org.smack.util.ReflectionUtil;
 import org.smack.util.ServiceManager;
-import org.smack.util.StringUtil;
 import org.smack.util.resource.ResourceConverter;
 import org.smack.util.resource.ResourceMap;
 
@@ -39,6 +40,84 @@ public final class StringConverter
             throws Exception;
     }
 
+    /**
+     * A conversion to a primitive int.  Avoids boxing.
+     */
+    @FunctionalInterface
+    public interface ToIntConverter
+    {
+        int convert( String s )
+            throws Exception;
+
+        /**
+         * Convert a range of the passed string.  Implementations can
+         * override this to avoid the creation of the substring.
+         *
+         * @param s The string holding the range to convert.
+         * @param begin The index of the first character.
+         * @param end The index after the last character.
+         * @return The conversion result.
+         * @throws Exception In case of conversion failure.
+         */
+        default int convert( String s, int begin, int end )
+            throws Exception
+        {
+            return convert( s.substring( begin, end ) );
+        }
+    }
+
+    /**
+     * A conversion to a primitive long.  Avoids boxing.
+     */
+    @FunctionalInterface
+    public interface ToLongConverter
+    {
+        long convert( String s )
+            throws Exception;
+
+        /**
+         * Convert a range of the passed string.  Implementations can
+         * override this to avoid the creation of the substring.
+         *
+         * @param s The string holding the range to convert.
+         * @param begin The index of the first character.
+         * @param end The index after the last character.
+         * @return The conversion result.
+         * @throws Exception In case of conversion failure.
+         */
+        default long convert( String s, int begin, int end )
+            throws Exception
+        {
+            return convert( s.substring( begin, end ) );
+        }
+    }
+
+    /**
+     * A conversion to a primitive double.  Avoids boxing.
+     */
+    @FunctionalInterface
+    public interface ToDoubleConverter
+    {
+        double convert( String s )
+            throws Exception;
+
+        /**
+         * Convert a range of the passed string.  Implementations can
+         * override this to avoid the creation of the substring.
+         *
+         * @param s The string holding the range to convert.
+         * @param begin The index of the first character.
+         * @param end The index after the last character.
+         * @return The conversion result.
+         * @throws Exception In case of conversion failure.
+         */
+        default double convert( String s, int begin, int end )
+            throws Exception
+        {
+            return convert( s.substring( begin, end ) );
+        }
+    }
+
     public static class DynamicResourceConverter<T> extends ResourceConverter
     {
         private final Converter<String, T> _function;
@@ -58,8 +137,42 @@ public final class StringConverter
     }
 
 
-    private final HashMap<Class<?>, Converter<String, ?>> _registry =
-            new HashMap<>();
+    /**
+     * The quote character used when splitting array elements.
+     */
+    private static final char QUOTE_CHAR = '"';
+
+    /**
+     * Marks a type in the registry that has no converter.  This prevents
+     * repeated attempts to synthesize a converter for unknown types.
+     */
+    private static final Converter<String, ?> NO_CONVERTER = s -> {
+        throw new AssertionError();
+    };
+
+    /**
+     * The registered and synthesized converters.  Reads are lock-free,
+     * missing entries are synthesized outside of the map so that
+     * synthesizing array converters may recursively look up their
+     * component converter.
+     */
+    private final ConcurrentHashMap<Class<?>, Converter<String, ?>> _registry =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each put.  A lookup that caches a missing converter
+     * checks this to detect a concurrent put.
+     */
+    private final AtomicLong _generation =
+            new AtomicLong();
+
+    /**
+     * The primitive converters.  If null, the converter registered
+     * for the primitive type is adapted.
+     */
+    private volatile ToIntConverter _toInt;
+    private volatile ToLongConverter _toLong;
+    private volatile ToDoubleConverter _toDouble;
 
     /**
      * Create an instance.  Use with {@link ServiceManager} to get the common
@@ -96,14 +209,69 @@ public final class StringConverter
 
         LOG.info( "Adding rc for: " + cl );
 
-        // Directly ask the has table.  The outbound containsKey
-        // triggers creation of entries.
-        if ( _registry.containsKey( cl ) )
-            LOG.warning( "Duplicate resource converter for " + cl + "." );
+        // A primitive converter is replaced by the new converter.
+        if ( cl == int.class )
+            _toInt = null;
+        else if ( cl == long.class )
+            _toLong = null;
+        else if ( cl == double.class )
+            _toDouble = null;
 
-        _registry.put(
+        // A type that was marked as unknown is not a duplicate.
+        var previous = _registry.put(
                 cl,
                 f );
+        if ( previous != null && previous != NO_CONVERTER )
+            LOG.warning( "Duplicate resource converter for " + cl + "." );
+
+        // The new converter may allow to synthesize converters for
+        // types that were unknown up to now, e.g. arrays.  Markers added
+        // by lookups running concurrently are removed by these lookups,
+        // see getConverter.
+        _generation.incrementAndGet();
+        _registry.values().removeIf( c -> c == NO_CONVERTER );
+    }
+
+    /**
+     * Set the converter for int.  This also registers a converter for
+     * {@code int.class}.
+     *
+     * @param f The converter.
+     */
+    public void putInt( ToIntConverter f )
+    {
+        Objects.requireNonNull( f );
+
+        put( int.class, s -> f.convert( s ) );
+        _toInt = f;
+    }
+
+    /**
+     * Set the converter for long.  This also registers a converter for
+     * {@code long.class}.
+     *
+     * @param f The converter.
+     */
+    public void putLong( ToLongConverter f )
+    {
+        Objects.requireNonNull( f );
+
+        put( long.class, s -> f.convert( s ) );
+        _toLong = f;
+    }
+
+    /**
+     * Set the converter for double.  This also registers a converter for
+     * {@code double.class}.
+     *
+     * @param f The converter.
+     */
+    public void putDouble( ToDoubleConverter f )
+    {
+        Objects.requireNonNull( f );
+
+        put( double.class, s -> f.convert( s ) );
+        _toDouble = f;
     }
 
     @Deprecated
@@ -121,10 +289,12 @@ public final class StringConverter
     @Deprecated
     public <T> ResourceConverter get( Class<T> cl )
     {
-        if ( ! containsKey( cl ) )
+        var converter = getConverter( cl );
+
+        if ( converter == null )
             return null;
 
-        return new DynamicResourceConverter( cl, _registry.get( cl ) );
+        return new DynamicResourceConverter<>( cl, converter );
     }
 
     /**
@@ -136,7 +306,157 @@ public final class StringConverter
     @SuppressWarnings("unchecked")
     public <T> Converter<String, T> getConverter( Class<T> cl )
     {
-        return (Converter<String,T>)_registry.computeIfAbsent( cl, this::synthesize );
+        var result = _registry.get( cl );
+
+        while ( result == null )
+        {
+            long generation = _generation.get();
+
+            Converter<String, ?> synthesized = synthesize( cl );
+            if ( synthesized == null )
+                synthesized = NO_CONVERTER;
+
+            // If another thread was faster, use its result.
+            result = _registry.putIfAbsent( cl, synthesized );
+            if ( result == null )
+                result = synthesized;
+
+            // A put since the synthesis may allow a converter.  If the
+            // put did not see the marker, it is removed here.
+            if ( result == NO_CONVERTER && generation != _generation.get() )
+            {
+                _registry.remove( cl, NO_CONVERTER );
+                result = _registry.get( cl );
+            }
+        }
+
+        if ( result == NO_CONVERTER )
+            return null;
+
+        return (Converter<String,T>)result;
+    }
+
+    /**
+     * @return The converter for int.  Null if none is available.
+     */
+    public ToIntConverter getIntConverter()
+    {
+        var result = _toInt;
+
+        if ( result != null )
+            return result;
+
+        var converter = getConverter( int.class );
+
+        if ( converter == null )
+            return null;
+
+        return s -> converter.convert( s );
+    }
+
+    /**
+     * @return The converter for long.  Null if none is available.
+     */
+    public ToLongConverter getLongConverter()
+    {
+        var result = _toLong;
+
+        if ( result != null )
+            return result;
+
+        var converter = getConverter( long.class );
+
+        if ( converter == null )
+            return null;
+
+        return s -> converter.convert( s );
+    }
+
+    /**
+     * @return The converter for double.  Null if none is available.
+     */
+    public ToDoubleConverter getDoubleConverter()
+    {
+        var result = _toDouble;
+
+        if ( result != null )
+            return result;
+
+        var converter = getConverter( double.class );
+
+        if ( converter == null )
+            return null;
+
+        return s -> converter.convert( s );
+    }
+
+    /**
+     * Convert a string to an int.
+     * @param s The string to convert.
+     * @return The conversion result.
+     * @throws IllegalArgumentException In case of conversion failure.
+     */
+    public int convertInt( String s )
+    {
+        var converter = getIntConverter();
+
+        if ( converter == null )
+            throw new IllegalArgumentException(
+                    "No resource converter found for type: " + int.class );
+        try
+        {
+            return converter.convert( s );
+        }
+        catch ( Exception e )
+        {
+            throw conversionFailure( int.class, s, e );
+        }
+    }
+
+    /**
+     * Convert a string to a long.
+     * @param s The string to convert.
+     * @return The conversion result.
+     * @throws IllegalArgumentException In case of conversion failure.
+     */
+    public long convertLong( String s )
+    {
+        var converter = getLongConverter();
+
+        if ( converter == null )
+            throw new IllegalArgumentException(
+                    "No resource converter found for type: " + long.class );
+        try
+        {
+            return converter.convert( s );
+        }
+        catch ( Exception e )
+        {
+            throw conversionFailure( long.class, s, e );
+        }
+    }
+
+    /**
+     * Convert a string to a double.
+     * @param s The string to convert.
+     * @return The conversion result.
+     * @throws IllegalArgumentException In case of conversion failure.
+     */
+    public double convertDouble( String s )
+    {
+        var converter = getDoubleConverter();
+
+        if ( converter == null )
+            throw new IllegalArgumentException(
+                    "No resource converter found for type: " + double.class );
+        try
+        {
+            return converter.convert( s );
+        }
+        catch ( Exception e )
+        {
+            throw conversionFailure( double.class, s, e );
+        }
     }
 
     /**
@@ -148,32 +468,48 @@ public final class StringConverter
      * on the converter.
      * @throws IllegalArgumentException In case of conversion failure.
      */
-    @SuppressWarnings("unchecked")
     public <T> T convert( Class<T> cl, String s )
     {
-        if ( ! containsKey( cl ) )
+        var converter = getConverter( cl );
+
+        if ( converter == null )
             throw new IllegalArgumentException(
                     "No resource converter found for type: " + cl );
         try
         {
-            return (T)_registry.get( cl ).convert( s );
-        }
-        catch ( IllegalArgumentException e )
-        {
-            throw e;
+            return converter.convert( s );
         }
         catch ( Exception e )
         {
-            throw new IllegalArgumentException(
-                    String.format(
-                            "Cannot convert '%s' to %s: %s",
-                            s,
-                            cl.getName(),
-                            e.getMessage()),
-                    e );
+            throw conversionFailure( cl, s, e );
         }
     }
 
+    /**
+     * Create the exception reporting a failed conversion.
+     *
+     * @param cl The target class.
+     * @param s The string that failed to convert.
+     * @param e The cause.
+     * @return The exception to throw.
+     */
+    private static IllegalArgumentException conversionFailure(
+            Class<?> cl,
+            String s,
+            Exception e )
+    {
+        if ( e instanceof IllegalArgumentException )
+            return (IllegalArgumentException)e;
+
+        return new IllegalArgumentException(
+                String.format(
+                        "Cannot convert '%s' to %s: %s",
+                        s,
+                        cl.getName(),
+                        e.getMessage()),
+                e );
+    }
+
     private <T> Converter<String, T> synthesizeEnum( Class<T> cl )
     {
         LOG.info( "Synthesize enum for: " + cl );
@@ -191,28 +527,107 @@ public final class StringConverter
     {
         LOG.info( "Synthesize array for: " + cl );
 
+        var componentType =
+                cl.getComponentType();
+
+        if ( componentType == int.class )
+            return (Converter<String, T>)synthesizeIntArray();
+        if ( componentType == long.class )
+            return (Converter<String, T>)synthesizeLongArray();
+        if ( componentType == double.class )
+            return (Converter<String, T>)synthesizeDoubleArray();
+
         var componentConverter =
-                getConverter( cl.getComponentType() );
+                getConverter( componentType );
 
-        return s -> {
-            String[] split = StringUtil.splitQuoted( s );
+        if ( ! componentType.isPrimitive() )
+        {
+            return s -> {
+                var result = (Object[])Array.newInstance(
+                        componentType, QuotedTokenizer.count( QUOTE_CHAR, s ) );
+
+                var tokenizer = new QuotedTokenizer( QUOTE_CHAR, s );
+                for ( int i = 0 ; tokenizer.next() ; i++ )
+                    result[i] = componentConverter.convert( tokenizer.token() );
+
+                return (T)result;
+            };
+        }
 
+        return s -> {
             var result = Array.newInstance(
-                    cl.getComponentType(), split.length );
+                    componentType, QuotedTokenizer.count( QUOTE_CHAR, s ) );
 
-            int idx = 0;
-            for ( String c : split )
+            var tokenizer = new QuotedTokenizer( QUOTE_CHAR, s );
+            for ( int i = 0 ; tokenizer.next() ; i++ )
             {
                 Array.set(
                         result,
-                        idx++,
-                        componentConverter.convert( c ) );
+                        i,
+                        componentConverter.convert( tokenizer.token() ) );
             }
 
             return (T)result;
         };
     }
 
+    private Converter<String, int[]> synthesizeIntArray()
+    {
+        var componentConverter = getIntConverter();
+
+        return s -> {
+            var result = new int[QuotedTokenizer.count( QUOTE_CHAR, s )];
+
+            var tokenizer = new QuotedTokenizer( QUOTE_CHAR, s );
+            for ( int i = 0 ; tokenizer.next() ; i++ )
+            {
+                result[i] = tokenizer.isContiguous() ?
+                        componentConverter.convert( s, tokenizer.begin(), tokenizer.end() ) :
+                        componentConverter.convert( tokenizer.token() );
+            }
+
+            return result;
+        };
+    }
+
+    private Converter<String, long[]> synthesizeLongArray()
+    {
+        var componentConverter = getLongConverter();
+
+        return s -> {
+            var result = new long[QuotedTokenizer.count( QUOTE_CHAR, s )];
+
+            var tokenizer = new QuotedTokenizer( QUOTE_CHAR, s );
+            for ( int i = 0 ; tokenizer.next() ; i++ )
+            {
+                result[i] = tokenizer.isContiguous() ?
+                        componentConverter.convert( s, tokenizer.begin(), tokenizer.end() ) :
+                        componentConverter.convert( tokenizer.token() );
+            }
+
+            return result;
+        };
+    }
+
+    private Converter<String, double[]> synthesizeDoubleArray()
+    {
+        var componentConverter = getDoubleConverter();
+
+        return s -> {
+            var result = new double[QuotedTokenizer.count( QUOTE_CHAR, s )];
+
+            var tokenizer = new QuotedTokenizer( QUOTE_CHAR, s );
+            for ( int i = 0 ; tokenizer.next() ; i++ )
+            {
+                result[i] = tokenizer.isContiguous() ?
+                        componentConverter.convert( s, tokenizer.begin(), tokenizer.end() ) :
+                        componentConverter.convert( tokenizer.token() );
+            }
+
+            return result;
+        };
+    }
+
     /**
      * Synthesizes missing converters.
      *
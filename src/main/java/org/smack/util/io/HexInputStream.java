@@ -0,0 +1,234 @@
+/* $Id$
+ *
+ * Common.
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+import org.smack.util.HexCodec;
+
+/**
+ * An input stream that decodes hex digit pairs read from the underlying
+ * stream.  Upper and lower case digits are accepted, whitespace is
+ * ignored.  This reads the {@link HexOutputStream.Format#PLAIN}
+ * output of {@link HexOutputStream}.  Memory use is constant, so
+ * arbitrarily large streams can be decoded.
+ *
+ * @author Michael Binz
+ */
+public class HexInputStream extends FilterInputStream
+{
+    /**
+     * Hex digits read from the underlying stream.
+     */
+    private final byte[] _buffer =
+            new byte[ 4096 ];
+    private int _position;
+    private int _limit;
+
+    /**
+     * The offset of the buffer's first byte in the underlying stream.
+     * Used for error messages.
+     */
+    private long _bufferOffset;
+
+    private boolean _closed;
+
+    /**
+     * Create an instance.
+     *
+     * @param in The stream holding the hex encoding.
+     */
+    public HexInputStream( InputStream in )
+    {
+        super( Objects.requireNonNull( in ) );
+    }
+
+    /**
+     * Reads a decoded byte.
+     *
+     * @throws IOException If the underlying stream contains a character
+     * that is neither a hex digit nor whitespace, or ends with a single
+     * digit.  The message holds the offset in the underlying stream.
+     */
+    @Override
+    public int read() throws IOException
+    {
+        ensureOpen();
+
+        int high = digit();
+
+        if ( high < 0 )
+            return -1;
+
+        return (high << 4) | secondDigit();
+    }
+
+    /**
+     * Reads decoded bytes.  Blocks only until the first byte is
+     * available.
+     *
+     * @throws IOException If the underlying stream contains a character
+     * that is neither a hex digit nor whitespace, or ends with a single
+     * digit.  The message holds the offset in the underlying stream.
+     */
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException
+    {
+        Objects.checkFromIndexSize( off, len, b.length );
+
+        if ( len == 0 )
+            return 0;
+
+        int first = read();
+
+        if ( first < 0 )
+            return -1;
+
+        b[off] = (byte)first;
+
+        int count = 1;
+
+        while ( count < len && skipWhitespace() )
+        {
+            int high = digit();
+            b[off + count++] = (byte)((high << 4) | secondDigit());
+        }
+
+        return count;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+        long result = 0;
+
+        while ( result < n && read() >= 0 )
+            result++;
+
+        return result;
+    }
+
+    /**
+     * @return Zero, the number of pairs in the underlying stream is
+     * unknown.
+     */
+    @Override
+    public int available() throws IOException
+    {
+        ensureOpen();
+
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void mark( int readlimit )
+    {
+    }
+
+    @Override
+    public void reset() throws IOException
+    {
+        throw new IOException( "mark/reset not supported." );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        _closed = true;
+
+        super.close();
+    }
+
+    /**
+     * Skip the buffered whitespace.
+     *
+     * @return True if buffered data is available.
+     */
+    private boolean skipWhitespace()
+    {
+        while ( _position < _limit && Character.isWhitespace( _buffer[_position] ) )
+            _position++;
+
+        return _position < _limit;
+    }
+
+    /**
+     * Read the next hex digit, reading from the underlying stream as
+     * needed.
+     *
+     * @return The digit's value or -1 at the end of the stream.
+     */
+    private int digit() throws IOException
+    {
+        while ( ! skipWhitespace() )
+        {
+            if ( ! fill() )
+                return -1;
+        }
+
+        int result = HexCodec.fromDigit( _buffer[_position] & 0xff );
+
+        if ( result < 0 )
+            throw new IOException( String.format(
+                    "Invalid hex digit '%s' at offset %d.",
+                    (char)(_buffer[_position] & 0xff),
+                    _bufferOffset + _position ) );
+
+        _position++;
+
+        return result;
+    }
+
+    private int secondDigit() throws IOException
+    {
+        int result = digit();
+
+        if ( result < 0 )
+            throw new IOException( String.format(
+                    "Odd number of hex digits at offset %d.",
+                    _bufferOffset + _position ) );
+
+        return result;
+    }
+
+    /**
+     * Read from the underlying stream into the empty buffer.
+     *
+     * @return False at the end of the stream.
+     */
+    private boolean fill() throws IOException
+    {
+        _bufferOffset += _limit;
+        _position = 0;
+        _limit = 0;
+
+        int count = in.read( _buffer );
+
+        if ( count < 0 )
+            return false;
+
+        _limit = count;
+
+        return true;
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if ( _closed )
+            throw new IOException( "Stream closed." );
+    }
+}
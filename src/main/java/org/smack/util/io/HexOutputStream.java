@@ -0,0 +1,276 @@
+/* $Id$
+ *
+ * Common.
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import org.smack.util.HexCodec;
+
+/**
+ * An output stream that writes the hex encoding of the written bytes to
+ * the underlying stream.  Memory use is constant, so arbitrarily large
+ * streams can be encoded.
+ * <p>
+ * In {@link Format#PLAIN} format the result is a sequence of lower case
+ * hex digit pairs that can be read back by {@link HexInputStream}.  In
+ * {@link Format#DUMP} format each line holds the offset, 16 bytes and
+ * their printable ASCII characters:
+ * </p>
+ * <pre>
+ * 00000000  48 65 6c 6c 6f 20 57 6f  72 6c 64 0a              |Hello World.|
+ * </pre>
+ * <p>
+ * A pending partial dump line is written when the stream is closed.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public class HexOutputStream extends FilterOutputStream
+{
+    /**
+     * The output formats.
+     */
+    public enum Format
+    {
+        /**
+         * Hex digit pairs without separators.
+         */
+        PLAIN,
+        /**
+         * Lines of offset, hex digits and ASCII characters.
+         */
+        DUMP
+    }
+
+    private static final int BYTES_PER_LINE = 16;
+
+    /**
+     * The offset column has at least this many digits.
+     */
+    private static final int OFFSET_DIGITS = 8;
+
+    private final Format _format;
+
+    /**
+     * Encoded data not yet written to the underlying stream.
+     */
+    private final ByteBuffer _encoded =
+            ByteBuffer.allocate( 4096 );
+
+    /**
+     * The bytes of the current dump line.
+     */
+    private final byte[] _line =
+            new byte[ BYTES_PER_LINE ];
+    private int _lineLength;
+
+    /**
+     * The offset of the current dump line.
+     */
+    private long _offset;
+
+    private boolean _closed;
+
+    /**
+     * Create an instance writing in {@link Format#PLAIN} format.
+     *
+     * @param out The stream receiving the hex encoding.
+     */
+    public HexOutputStream( OutputStream out )
+    {
+        this( out, Format.PLAIN );
+    }
+
+    /**
+     * Create an instance.
+     *
+     * @param out The stream receiving the hex encoding.
+     * @param format The output format.
+     */
+    public HexOutputStream( OutputStream out, Format format )
+    {
+        super( Objects.requireNonNull( out ) );
+
+        _format = Objects.requireNonNull( format );
+    }
+
+    @Override
+    public void write( int b ) throws IOException
+    {
+        ensureOpen();
+
+        if ( _format == Format.DUMP )
+        {
+            _line[_lineLength++] = (byte)b;
+
+            if ( _lineLength == BYTES_PER_LINE )
+                line();
+
+            return;
+        }
+
+        if ( _encoded.remaining() < 2 )
+            drain();
+
+        _encoded.put( (byte)HexCodec.toDigit( b >>> 4 ) );
+        _encoded.put( (byte)HexCodec.toDigit( b ) );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException
+    {
+        Objects.checkFromIndexSize( off, len, b.length );
+        ensureOpen();
+
+        if ( _format == Format.DUMP )
+        {
+            while ( len > 0 )
+            {
+                int count = Math.min( len, BYTES_PER_LINE - _lineLength );
+
+                System.arraycopy( b, off, _line, _lineLength, count );
+                _lineLength += count;
+                off += count;
+                len -= count;
+
+                if ( _lineLength == BYTES_PER_LINE )
+                    line();
+            }
+
+            return;
+        }
+
+        var source = ByteBuffer.wrap( b, off, len );
+
+        while ( source.hasRemaining() )
+        {
+            HexCodec.encode( source, _encoded );
+
+            if ( source.hasRemaining() )
+                drain();
+        }
+    }
+
+    /**
+     * Writes the encoded data to the underlying stream and flushes it.
+     * A partial dump line is not written.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        ensureOpen();
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes a pending partial dump line and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( _closed )
+            return;
+
+        try ( var target = out )
+        {
+            if ( _lineLength > 0 )
+                line();
+            drain();
+            target.flush();
+        }
+        finally
+        {
+            _closed = true;
+        }
+    }
+
+    /**
+     * Encode the current dump line.
+     */
+    private void line() throws IOException
+    {
+        // Offset, hex column, ASCII column and bars, new line.
+        int lineLength =
+                2 * Long.BYTES + 1 +
+                3 * BYTES_PER_LINE + 1 +
+                3 + BYTES_PER_LINE + 2;
+
+        if ( _encoded.remaining() < lineLength )
+            drain();
+
+        int digits = Math.max(
+                OFFSET_DIGITS,
+                (Long.SIZE - Long.numberOfLeadingZeros( _offset ) + 3) / 4 );
+
+        for ( int i = digits - 1 ; i >= 0 ; i-- )
+            _encoded.put( (byte)HexCodec.toDigit( (int)(_offset >>> (i * 4)) ) );
+
+        _encoded.put( (byte)' ' );
+
+        for ( int i = 0 ; i < BYTES_PER_LINE ; i++ )
+        {
+            if ( i == BYTES_PER_LINE / 2 )
+                _encoded.put( (byte)' ' );
+
+            _encoded.put( (byte)' ' );
+
+            if ( i < _lineLength )
+            {
+                _encoded.put( (byte)HexCodec.toDigit( _line[i] >>> 4 ) );
+                _encoded.put( (byte)HexCodec.toDigit( _line[i] ) );
+            }
+            else
+            {
+                _encoded.put( (byte)' ' );
+                _encoded.put( (byte)' ' );
+            }
+        }
+
+        _encoded.put( (byte)' ' );
+        _encoded.put( (byte)' ' );
+        _encoded.put( (byte)'|' );
+
+        for ( int i = 0 ; i < _lineLength ; i++ )
+        {
+            byte c = _line[i];
+
+            _encoded.put( c >= 0x20 && c < 0x7f ?
+                    c :
+                    (byte)'.' );
+        }
+
+        _encoded.put( (byte)'|' );
+        _encoded.put( (byte)'\n' );
+
+        _offset += _lineLength;
+        _lineLength = 0;
+    }
+
+    /**
+     * Write the encoded data to the underlying stream.
+     */
+    private void drain() throws IOException
+    {
+        if ( _encoded.position() == 0 )
+            return;
+
+        out.write( _encoded.array(), 0, _encoded.position() );
+        _encoded.clear();
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if ( _closed )
+            throw new IOException( "Stream closed." );
+    }
+}
@@ -6,9 +6,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A simple pipe.  Write to the write end, read from the read end.
+ * <p>
+ * This is based on a {@link Pipe}.  The channel ends are the sink and
+ * source of this pipe, the stream ends wrap them.
+ * </p>
  *
  * @version $Rev: 305 $
  * @author Michael Binz
@@ -46,7 +52,8 @@ public final class NioPipe
     }
 
     /**
-     * Get the Pipe's write end.
+     * Get the Pipe's write end.  This is a stream writing to the sink of
+     * the underlying nio pipe.
      *
      * @return The write end.
      */
@@ -57,7 +64,8 @@ public final class NioPipe
     }
 
     /**
-     * Get the pipes read end.
+     * Get the pipes read end.  This is a stream reading from the source
+     * of the underlying nio pipe.
      *
      * @return The read end.
      */
@@ -67,6 +75,30 @@ public final class NioPipe
         return Channels.newInputStream( _pipe.source() );
     }
 
+    /**
+     * Get the Pipe's write end as a channel.  This is the sink of
+     * the underlying nio pipe.
+     *
+     * @return The write end.
+     */
+    @Override
+    public WritableByteChannel getWriteChannel()
+    {
+        return _pipe.sink();
+    }
+
+    /**
+     * Get the pipes read end as a channel.  This is the source of
+     * the underlying nio pipe.
+     *
+     * @return The read end.
+     */
+    @Override
+    public ReadableByteChannel getReadChannel()
+    {
+        return _pipe.source();
+    }
+
     /**
      * Close the pipe.
      */
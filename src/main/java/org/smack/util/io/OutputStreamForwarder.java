@@ -8,16 +8,39 @@
 package org.smack.util.io;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jdesktop.util.InterruptibleThread;
 
 /**
  * An output stream that decouples the writing thread from the thread that
  * forwards the data to the passed target stream.
+ * <p>
+ * Small writes are collected in pooled, fixed-size chunks.  A chunk is
+ * handed to the forwarding thread when the next write does not fit, when
+ * the forwarding thread is idle, or on flush.  A write that fails due to
+ * the overflow policy accepted none of its data.  The forwarding thread writes all
+ * chunks queued at a time in a single write to the target and recycles
+ * the chunks afterwards.  Writes larger than a chunk are forwarded as
+ * a single copy.
+ * </p>
+ * <p>
+ * The {@link Overflow} policy selects what happens if the forwarding
+ * thread cannot keep up and the queue is full.  The counters
+ * {@link #getQueuedBytes()}, {@link #getDroppedBytes()},
+ * {@link #getPumpLatency()} and {@link #getTargetWriteTime()} help to
+ * size the queue for a given producer.
+ * </p>
  *
  * @version $Rev$
  * @author Michael Binz
@@ -25,6 +48,74 @@ import org.jdesktop.util.InterruptibleThread;
 final public class OutputStreamForwarder
     extends OutputStream
 {
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * The number of chunks the forwarding thread collects for a single
+     * write to the target.
+     */
+    private static final int BATCH_CHUNKS = 8;
+
+    /**
+     * The policies applied if data is written while the queue is full.
+     */
+    public enum Overflow
+    {
+        /**
+         * Wait for free queue space up to the configured timeout, then
+         * fail.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest queued data.  Flush requests are kept.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the data to queue.  A flush request is never dropped, it
+         * drops the oldest queued data instead.
+         */
+        DROP_NEWEST,
+        /**
+         * Fail the write with an {@link IOException}.
+         */
+        FAIL
+    }
+
+    /**
+     * A unit of data to forward.
+     */
+    private static final class Chunk
+    {
+        private final byte[] _data;
+        private int _length;
+
+        /**
+         * The time the chunk was queued.
+         */
+        private long _queued;
+
+        Chunk( int size )
+        {
+            _data = new byte[ size ];
+        }
+
+        Chunk( byte[] data )
+        {
+            _data = data;
+            _length = data.length;
+        }
+    }
+
+    /**
+     * Queued to request a flush of the target.
+     */
+    private static final Chunk FLUSH = new Chunk( 0 );
+
+    /**
+     * Queued to terminate the forwarding thread.
+     */
+    private static final Chunk END = new Chunk( 0 );
+
     /**
      * The target output stream.
      */
@@ -39,19 +130,102 @@ final public class OutputStreamForwarder
     /**
      * The queue that holds the data packets to forward.
      */
-    private final BlockingQueue<byte[]> _outgoing;
+    private final BlockingQueue<Chunk> _outgoing;
 
     /**
-     * Create an instance.
+     * Chunks available for reuse.
+     */
+    private final BlockingQueue<Chunk> _free;
+
+    /**
+     * The size of the pooled chunks.
+     */
+    private final int _chunkSize;
+
+    /**
+     * Guards the writer side state below.
+     */
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    /**
+     * The chunk currently filled by the writers.  Null if none.
+     */
+    private Chunk _current;
+
+    /**
+     * True if the forwarding thread found nothing to do and waits
+     * for the next chunk.
+     */
+    private boolean _pumpIdle;
+
+    private boolean _closed;
+
+    private final Overflow _overflow;
+
+    /**
+     * The time to wait for free queue space in nanoseconds.
+     */
+    private final long _timeout;
+
+    private final AtomicLong _queuedBytes = new AtomicLong();
+    private final AtomicLong _droppedBytes = new AtomicLong();
+    private final AtomicLong _forwardedChunks = new AtomicLong();
+    private final AtomicLong _pumpLatency = new AtomicLong();
+    private final AtomicLong _targetWriteTime = new AtomicLong();
+
+    /**
+     * Create an instance.  Writes fail if the queue is full.
      *
      * @param target The target output stream receiving incoming data.
+     * @param capacity The maximum number of chunks waiting to be forwarded.
      */
     public OutputStreamForwarder( OutputStream target, int capacity )
+    {
+        this( target, capacity, CHUNK_SIZE );
+    }
+
+    /**
+     * Create an instance.  Writes fail if the queue is full.
+     *
+     * @param target The target output stream receiving incoming data.
+     * @param capacity The maximum number of chunks waiting to be forwarded.
+     * @param chunkSize The size of the chunks collecting written data.
+     */
+    public OutputStreamForwarder( OutputStream target, int capacity, int chunkSize )
+    {
+        this( target, capacity, chunkSize, Overflow.FAIL, 0, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Create an instance.
+     *
+     * @param target The target output stream receiving incoming data.
+     * @param capacity The maximum number of chunks waiting to be forwarded.
+     * @param chunkSize The size of the chunks collecting written data.
+     * @param overflow The policy applied if the queue is full.
+     * @param timeout The time to wait for free queue space if the policy
+     * is {@link Overflow#BLOCK}.
+     * @param unit The unit of the timeout.
+     */
+    public OutputStreamForwarder(
+            OutputStream target,
+            int capacity,
+            int chunkSize,
+            Overflow overflow,
+            long timeout,
+            TimeUnit unit )
     {
         if ( null == target )
             throw new NullPointerException();
+        if ( chunkSize <= 0 )
+            throw new IllegalArgumentException( "chunkSize must be > 0" );
+
+        _overflow = Objects.requireNonNull( overflow );
+        _timeout = unit.toNanos( timeout );
 
-        _outgoing = new ArrayBlockingQueue<byte[]>( capacity );
+        _outgoing = new ArrayBlockingQueue<>( capacity );
+        _free = new ArrayBlockingQueue<>( capacity + 1 );
+        _chunkSize = chunkSize;
 
         _target = target;
 
@@ -72,100 +246,536 @@ final public class OutputStreamForwarder
      */
     private final Runnable _dataPump = new Runnable()
     {
+        private byte[] _batch;
+
         @Override
         public void run()
         {
+            _batch = new byte[ BATCH_CHUNKS * _chunkSize ];
+
+            List<Chunk> chunks = new ArrayList<>();
+
             while ( ! Thread.currentThread().isInterrupted() )
                 try
                 {
-                    _target.write( _outgoing.take() );
+                    chunks.add( next() );
+                    _outgoing.drainTo( chunks );
+
+                    if ( ! forward( chunks ) )
+                        return;
+
+                    chunks.clear();
                 }
                 catch ( IOException e )
                 {
                     _failed = e;
                     return;
                 }
+                catch ( RuntimeException e )
+                {
+                    _failed = new IOException( "Forwarding failed.", e );
+                    return;
+                }
                 catch ( InterruptedException e )
                 {
                     return;
                 }
         }
+
+        /**
+         * Get the next chunk to forward.  If nothing is queued, take the
+         * chunk the writers currently fill, otherwise wait.
+         */
+        private Chunk next() throws InterruptedException
+        {
+            while ( true )
+            {
+                var result = _outgoing.poll();
+
+                if ( result != null )
+                    return result;
+
+                // Never wait for the lock, a writer holding it may wait
+                // for free queue space.
+                if ( ! _lock.tryLock() )
+                {
+                    result = _outgoing.poll( 1, TimeUnit.MILLISECONDS );
+                    if ( result != null )
+                        return result;
+                    continue;
+                }
+
+                try
+                {
+                    // Writers may have queued chunks in the meantime that
+                    // have to be forwarded before the current one.
+                    result = _outgoing.poll();
+                    if ( result != null )
+                        return result;
+
+                    if ( _current != null && _current._length > 0 )
+                    {
+                        _current._queued = System.nanoTime();
+                        result = _current;
+                        _current = null;
+                        return result;
+                    }
+
+                    _pumpIdle = true;
+                }
+                finally
+                {
+                    _lock.unlock();
+                }
+
+                return _outgoing.take();
+            }
+        }
+
+        /**
+         * Write the passed chunks to the target.
+         *
+         * @return false if the end marker was found.
+         */
+        private boolean forward( List<Chunk> chunks ) throws IOException
+        {
+            int filled = 0;
+            long now = System.nanoTime();
+
+            for ( var c : chunks )
+            {
+                if ( c == FLUSH )
+                {
+                    filled = writeBatch( filled );
+                    _target.flush();
+                    continue;
+                }
+                if ( c == END )
+                {
+                    writeBatch( filled );
+                    return false;
+                }
+
+                _pumpLatency.addAndGet( now - c._queued );
+
+                if ( filled + c._length > _batch.length )
+                    filled = writeBatch( filled );
+
+                if ( c._length > _batch.length )
+                {
+                    writeTarget( c._data, c._length );
+                    _queuedBytes.addAndGet( -c._length );
+                }
+                else
+                {
+                    System.arraycopy( c._data, 0, _batch, filled, c._length );
+                    filled += c._length;
+                }
+
+                _forwardedChunks.incrementAndGet();
+                recycle( c );
+            }
+
+            writeBatch( filled );
+
+            return true;
+        }
+
+        private int writeBatch( int filled ) throws IOException
+        {
+            if ( filled > 0 )
+            {
+                writeTarget( _batch, filled );
+                _queuedBytes.addAndGet( -filled );
+            }
+
+            return 0;
+        }
+
+        private void writeTarget( byte[] data, int length ) throws IOException
+        {
+            long start = System.nanoTime();
+            _target.write( data, 0, length );
+            _targetWriteTime.addAndGet( System.nanoTime() - start );
+        }
     };
 
-    /* (non-Javadoc)
-     * @see java.io.OutputStream#write(byte[])
+    /**
+     * Get a chunk for writing.  Reuses a pooled chunk if available.
      */
-    @Override
-    public void write( byte[] b ) throws IOException
+    private Chunk allocate()
     {
-        if ( _failed != null )
-            throw _failed;
+        var result = _free.poll();
 
-        try
+        if ( result == null )
+            return new Chunk( _chunkSize );
+
+        result._length = 0;
+        return result;
+    }
+
+    /**
+     * Return a forwarded chunk to the pool.
+     */
+    private void recycle( Chunk chunk )
+    {
+        if ( chunk._data.length == _chunkSize )
+            _free.offer( chunk );
+    }
+
+    /**
+     * Queue a chunk for forwarding.  Applies the overflow policy if the
+     * queue is full.  Requires the lock.
+     */
+    private void enqueue( Chunk chunk ) throws IOException
+    {
+        _pumpIdle = false;
+        if ( chunk != FLUSH )
+            chunk._queued = System.nanoTime();
+
+        if ( _outgoing.offer( chunk ) )
+            return;
+
+        switch ( _overflow )
         {
-            _outgoing.add( b.clone() );
+        case BLOCK:
+            try
+            {
+                if ( _outgoing.offer( chunk, _timeout, TimeUnit.NANOSECONDS ) )
+                    return;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if ( _failed != null )
+                throw _failed;
+            throw new IOException( "Pipe broken -- consumer timed out." );
+
+        case DROP_NEWEST:
+            // Flush requests are never dropped, they make room.
+            if ( chunk == FLUSH )
+                enqueueDropOldest( chunk );
+            else
+                drop( chunk );
+            return;
+
+        case DROP_OLDEST:
+            enqueueDropOldest( chunk );
+            return;
+
+        default:
+            throw new IOException( "Pipe broken -- no consumer." );
         }
-        catch ( IllegalStateException e )
+    }
+
+    /**
+     * Queue a chunk, dropping the oldest queued data as needed.  Requires
+     * the lock.
+     */
+    private void enqueueDropOldest( Chunk chunk )
+    {
+        do
         {
-            throw new IOException( "Pipe broken -- no consumer." );
+            if ( _outgoing.offer( chunk ) )
+                return;
+        }
+        while ( dropOldest() );
+
+        // Only flush requests are queued.  These already cover all
+        // accepted data, so a flush request is merged into them.
+        if ( chunk != FLUSH )
+            drop( chunk );
+    }
+
+    /**
+     * Discard the oldest queued data chunk.  Flush requests are kept.
+     *
+     * @return False if no data chunk is queued.
+     */
+    private boolean dropOldest()
+    {
+        for ( var c : _outgoing )
+        {
+            if ( c != FLUSH && _outgoing.remove( c ) )
+            {
+                drop( c );
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Discard a chunk due to overflow.
+     */
+    private void drop( Chunk chunk )
+    {
+        _droppedBytes.addAndGet( chunk._length );
+        _queuedBytes.addAndGet( -chunk._length );
+        recycle( chunk );
+    }
+
+    /**
+     * Queue the current chunk if it holds data.  If this fails the chunk
+     * stays current, so no accepted data is lost.  Requires the lock.
+     */
+    private void handOver() throws IOException
+    {
+        if ( _current == null || _current._length == 0 )
+            return;
+
+        enqueue( _current );
+        _current = null;
+    }
+
+    /**
+     * Hand the current chunk to the forwarding thread if that is idle.
+     * Never fails, the chunk stays current if it cannot be queued.
+     * Requires the lock.
+     */
+    private void wakePump()
+    {
+        if ( ! _pumpIdle || _current == null || _current._length == 0 )
+            return;
+
+        _current._queued = System.nanoTime();
+
+        if ( _outgoing.offer( _current ) )
+        {
+            _current = null;
+            _pumpIdle = false;
         }
     }
 
+    /**
+     * Get the chunk receiving the next {@code length} bytes.  Hands over
+     * the current chunk first if it has not enough room, so that a write
+     * either fails before or succeeds after accepting the data.  Requires
+     * the lock.
+     */
+    private Chunk current( int length ) throws IOException
+    {
+        if ( _current != null &&
+                _current._data.length - _current._length < length )
+            handOver();
+
+        if ( _current == null )
+            _current = allocate();
+
+        return _current;
+    }
+
+    private void checkState() throws IOException
+    {
+        if ( _failed != null )
+            throw _failed;
+        if ( _closed )
+            throw new IOException( "Closed." );
+    }
+
     /* (non-Javadoc)
      * @see java.io.OutputStream#write(byte[], int, int)
      */
     @Override
     public void write( byte[] b, int off, int len ) throws IOException
     {
-        if ( _failed != null )
-            throw _failed;
+        Objects.checkFromIndexSize( off, len, b.length );
 
+        _lock.lock();
         try
         {
-            _outgoing.add( Arrays.copyOfRange( b, off, len ) );
+            checkState();
+
+            if ( len > _chunkSize )
+            {
+                // Large writes are forwarded as a single copy.
+                handOver();
+                // Count before queueing, the forwarding thread subtracts
+                // the forwarded bytes.
+                _queuedBytes.addAndGet( len );
+                try
+                {
+                    enqueue( new Chunk( Arrays.copyOfRange( b, off, off + len ) ) );
+                }
+                catch ( IOException e )
+                {
+                    _queuedBytes.addAndGet( -len );
+                    throw e;
+                }
+                return;
+            }
+
+            // Full chunks are handed over by the next write, on flush, or
+            // taken by the forwarding thread.
+            var current = current( len );
+            System.arraycopy( b, off, current._data, current._length, len );
+            current._length += len;
+            _queuedBytes.addAndGet( len );
+
+            wakePump();
         }
-        catch ( IllegalStateException e )
+        finally
         {
-            throw new IOException( "Pipe broken -- no consumer." );
+            _lock.unlock();
         }
     }
 
     @Override
     public void write( int b ) throws IOException
     {
-        if ( _failed != null )
-            throw _failed;
-
+        _lock.lock();
         try
         {
-            _outgoing.add( new byte[] { (byte)b } );
+            checkState();
+
+            var current = current( 1 );
+            current._data[ current._length++ ] = (byte)b;
+            _queuedBytes.incrementAndGet();
+
+            wakePump();
         }
-        catch ( IllegalStateException e )
+        finally
         {
-            throw new IOException( "Pipe broken -- no consumer." );
+            _lock.unlock();
         }
     }
 
-    /* (non-Javadoc)
-     * @see java.io.OutputStream#flush()
+    /**
+     * Forwards the written data and requests a flush of the target
+     * stream.  Does not wait until the flush is performed.
      */
     @Override
     public void flush() throws IOException
     {
-        if ( _failed != null )
-            throw _failed;
+        _lock.lock();
+        try
+        {
+            checkState();
 
-        _target.flush();
+            handOver();
+            enqueue( FLUSH );
+        }
+        finally
+        {
+            _lock.unlock();
+        }
     }
 
-    /* (non-Javadoc)
-     * @see java.io.OutputStream#close()
+    /**
+     * @return The number of bytes written but not yet forwarded to the
+     * target.
+     */
+    public long getQueuedBytes()
+    {
+        return _queuedBytes.get();
+    }
+
+    /**
+     * @return The number of bytes dropped due to the overflow policy.
+     */
+    public long getDroppedBytes()
+    {
+        return _droppedBytes.get();
+    }
+
+    /**
+     * @return The number of chunks forwarded to the target.
+     */
+    public long getForwardedChunks()
+    {
+        return _forwardedChunks.get();
+    }
+
+    /**
+     * @return The accumulated time in nanoseconds the forwarded chunks
+     * waited in the queue.  Divide by {@link #getForwardedChunks()} for
+     * the average latency.
+     */
+    public long getPumpLatency()
+    {
+        return _pumpLatency.get();
+    }
+
+    /**
+     * @return The accumulated time in nanoseconds spent writing to the
+     * target.
+     */
+    public long getTargetWriteTime()
+    {
+        return _targetWriteTime.get();
+    }
+
+    /**
+     * Queue a chunk, waiting for free queue space as long as the
+     * forwarding thread is running.
+     *
+     * @return False if the forwarding thread terminated.
+     */
+    private boolean offerToPump( Chunk chunk ) throws InterruptedException
+    {
+        while ( ! _outgoing.offer( chunk, 10, TimeUnit.MILLISECONDS ) )
+        {
+            if ( _failed != null || ! _dataPumpThread.isAlive() )
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Waits until all written data is forwarded, then closes the
+     * target stream.  If forwarding failed, the data not forwarded
+     * is discarded and remains counted in {@link #getQueuedBytes()}.
      */
     @Override
     public void close() throws IOException
     {
-        _dataPumpThread.interrupt();
-        _target.flush();
-        _target.close();
+        Chunk current;
+
+        _lock.lock();
+        try
+        {
+            if ( _closed )
+                return;
+            _closed = true;
+
+            current = _current;
+            _current = null;
+            _pumpIdle = false;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+
+        try
+        {
+            // Queue outside the lock, the forwarding thread may need it
+            // to make progress.
+            if ( current != null && current._length > 0 )
+            {
+                current._queued = System.nanoTime();
+                if ( offerToPump( current ) )
+                    offerToPump( END );
+            }
+            else
+                offerToPump( END );
+
+            _dataPumpThread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            _dataPumpThread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        finally
+        {
+            _target.flush();
+            _target.close();
+        }
     }
 }
@@ -9,6 +9,9 @@ package org.smack.util.io;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A simple pipe.  Write to the write end, read from the read end.
@@ -32,6 +35,30 @@ public interface Pipe extends AutoCloseable
      */
     InputStream getReadEnd();
 
+    /**
+     * Get the Pipe's write end as a channel.  This default implementation
+     * adapts the write end stream, implementations may transfer
+     * {@link java.nio.ByteBuffer}s directly.
+     *
+     * @return The write end.
+     */
+    default WritableByteChannel getWriteChannel()
+    {
+        return Channels.newChannel( getWriteEnd() );
+    }
+
+    /**
+     * Get the pipes read end as a channel.  This default implementation
+     * adapts the read end stream, implementations may transfer
+     * {@link java.nio.ByteBuffer}s directly.
+     *
+     * @return The read end.
+     */
+    default ReadableByteChannel getReadChannel()
+    {
+        return Channels.newChannel( getReadEnd() );
+    }
+
     /**
      * Close the pipe.
      */
@@ -0,0 +1,502 @@
+/* $Id$
+ *
+ * Common.
+ *
+ * Released under Gnu Public License
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pipe for a single writing and a single reading thread.  Write to the
+ * write end, read from the read end.
+ * <p>
+ * Data is transferred in bulk through a ring buffer.  The ends do not
+ * lock, a thread is only parked if the buffer is full on write or
+ * empty on read.  If more than one thread writes or reads, the threads
+ * on the same end have to synchronize externally.
+ * </p>
+ * <p>
+ * The channel ends transfer {@link ByteBuffer} content directly to and
+ * from the ring buffer.
+ * </p>
+ * <p>
+ * Closing the pipe causes further writes to fail.  Data already in the
+ * pipe can still be read, after that the read end reports end of stream.
+ * This holds for the read channel, too: it reads the remaining data
+ * although it is no longer {@link ReadableByteChannel#isOpen() open},
+ * and does not throw a {@link ClosedChannelException}.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public final class RingPipe
+    implements Pipe
+{
+    private static final int BUFFER_SIZE = 10 * 1024;
+
+    private static final VarHandle WRITE_COUNT;
+    private static final VarHandle READ_COUNT;
+
+    static
+    {
+        try
+        {
+            var lookup = MethodHandles.lookup();
+            WRITE_COUNT = lookup.findVarHandle(
+                    RingPipe.class, "_writeCount", long.class );
+            READ_COUNT = lookup.findVarHandle(
+                    RingPipe.class, "_readCount", long.class );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new ExceptionInInitializerError( e );
+        }
+    }
+
+    private final byte[] _buffer;
+
+    /**
+     * The total number of bytes written.  Only modified by the writer.
+     */
+    @SuppressWarnings("unused")
+    private volatile long _writeCount = 0;
+
+    /**
+     * The total number of bytes read.  Only modified by the reader.
+     */
+    @SuppressWarnings("unused")
+    private volatile long _readCount = 0;
+
+    /**
+     * The writer if parked on a full buffer.
+     */
+    private volatile Thread _parkedWriter;
+
+    /**
+     * The reader if parked on an empty buffer.
+     */
+    private volatile Thread _parkedReader;
+
+    private volatile boolean _closed = false;
+
+    /**
+     * The pipe's write end.
+     */
+    private final OutputStream _writeEnd = new OutputStream()
+    {
+        @Override
+        public void write( int b ) throws IOException
+        {
+            long written = awaitFree();
+
+            _buffer[ index( written ) ] = (byte)b;
+
+            publishWrite( written + 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException
+        {
+            Objects.checkFromIndexSize( off, len, b.length );
+
+            while ( len > 0 )
+            {
+                long written = awaitFree();
+                long read = (long)READ_COUNT.getVolatile( RingPipe.this );
+
+                int count = Math.min(
+                        len,
+                        _buffer.length - (int)(written - read) );
+
+                copyIn( b, off, index( written ), count );
+
+                publishWrite( written + count );
+
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            // A close propagates to both ends.
+            RingPipe.this.close();
+        };
+    };
+
+    /**
+     * The pipe's read end.
+     */
+    private final InputStream _readEnd = new InputStream()
+    {
+        @Override
+        public int read() throws IOException
+        {
+            long read = awaitAvailable();
+
+            if ( read < 0 )
+                return -1;
+
+            int result = _buffer[ index( read ) ];
+
+            publishRead( read + 1 );
+
+            // Mask to a byte.
+            return result & 0xff;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            Objects.checkFromIndexSize( off, len, b.length );
+
+            if ( len == 0 )
+                return 0;
+
+            long read = awaitAvailable();
+
+            if ( read < 0 )
+                return -1;
+
+            long written = (long)WRITE_COUNT.getVolatile( RingPipe.this );
+
+            int count = Math.min(
+                    len,
+                    (int)(written - read) );
+
+            copyOut( index( read ), b, off, count );
+
+            publishRead( read + count );
+
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return (int)(
+                    (long)WRITE_COUNT.getVolatile( RingPipe.this ) -
+                    (long)READ_COUNT.getVolatile( RingPipe.this ) );
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            // A close propagates to both ends.
+            RingPipe.this.close();
+        };
+    };
+
+    /**
+     * The pipe's write end as a channel.
+     */
+    private final WritableByteChannel _writeChannel = new WritableByteChannel()
+    {
+        @Override
+        public int write( ByteBuffer src ) throws IOException
+        {
+            if ( _closed )
+                throw new ClosedChannelException();
+
+            int result = src.remaining();
+
+            while ( src.hasRemaining() )
+            {
+                long written = awaitFree();
+                long read = (long)READ_COUNT.getVolatile( RingPipe.this );
+
+                int count = Math.min(
+                        src.remaining(),
+                        _buffer.length - (int)(written - read) );
+
+                int position = index( written );
+                int first = Math.min( count, _buffer.length - position );
+                src.get( _buffer, position, first );
+                src.get( _buffer, 0, count - first );
+
+                publishWrite( written + count );
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return ! _closed;
+        }
+
+        @Override
+        public void close()
+        {
+            // A close propagates to both ends.
+            RingPipe.this.close();
+        }
+    };
+
+    /**
+     * The pipe's read end as a channel.
+     */
+    private final ReadableByteChannel _readChannel = new ReadableByteChannel()
+    {
+        @Override
+        public int read( ByteBuffer dst ) throws IOException
+        {
+            if ( ! dst.hasRemaining() )
+                return 0;
+
+            long read = awaitAvailable();
+
+            if ( read < 0 )
+                return -1;
+
+            long written = (long)WRITE_COUNT.getVolatile( RingPipe.this );
+
+            int count = Math.min(
+                    dst.remaining(),
+                    (int)(written - read) );
+
+            int position = index( read );
+            int first = Math.min( count, _buffer.length - position );
+            dst.put( _buffer, position, first );
+            dst.put( _buffer, 0, count - first );
+
+            publishRead( read + count );
+
+            return count;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return ! _closed;
+        }
+
+        @Override
+        public void close()
+        {
+            // A close propagates to both ends.
+            RingPipe.this.close();
+        }
+    };
+
+    /**
+     * Create an instance.
+     *
+     * @param bufferSize The size of the pipe's internal buffer.
+     */
+    public RingPipe( int bufferSize )
+    {
+        if ( bufferSize <= 0 )
+            throw new IllegalArgumentException( "bufferSize must be > 0" );
+
+        _buffer = new byte[ bufferSize ];
+    }
+
+    /**
+     * Create an instance with a 10k buffer size.
+     */
+    public RingPipe()
+    {
+        this( BUFFER_SIZE );
+    }
+
+    /**
+     * Get the Pipe's write end.
+     *
+     * @return The write end.
+     */
+    @Override
+    public OutputStream getWriteEnd()
+    {
+        return _writeEnd;
+    }
+
+    /**
+     * Get the pipes read end.
+     *
+     * @return The read end.
+     */
+    @Override
+    public InputStream getReadEnd()
+    {
+        return _readEnd;
+    }
+
+    /**
+     * Get the Pipe's write end as a channel.
+     *
+     * @return The write end.
+     */
+    @Override
+    public WritableByteChannel getWriteChannel()
+    {
+        return _writeChannel;
+    }
+
+    /**
+     * Get the pipes read end as a channel.  After the pipe is closed the
+     * channel is no longer open, but still returns the data remaining in
+     * the pipe and then reports end of stream.
+     *
+     * @return The read end.
+     */
+    @Override
+    public ReadableByteChannel getReadChannel()
+    {
+        return _readChannel;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( _closed )
+            return;
+
+        _closed = true;
+
+        // Ensure wake-up and termination of all waiting threads.
+        LockSupport.unpark( _parkedWriter );
+        LockSupport.unpark( _parkedReader );
+    }
+
+    private int index( long count )
+    {
+        return (int)(count % _buffer.length);
+    }
+
+    /**
+     * Wait until the buffer has free space.
+     *
+     * @return The current write count.
+     * @throws IOException If the pipe was closed.
+     */
+    private long awaitFree() throws IOException
+    {
+        long written = (long)WRITE_COUNT.getOpaque( this );
+
+        while ( true )
+        {
+            if ( _closed )
+                throw new IOException( "Pipe broken." );
+
+            if ( written - (long)READ_COUNT.getVolatile( this ) < _buffer.length )
+                return written;
+
+            _parkedWriter = Thread.currentThread();
+            try
+            {
+                // Check again after announcing that we park. The reader
+                // checks for a parked writer after it published its count.
+                if ( ! _closed &&
+                        written - (long)READ_COUNT.getVolatile( this ) == _buffer.length )
+                    LockSupport.park( this );
+            }
+            finally
+            {
+                _parkedWriter = null;
+            }
+
+            if ( Thread.interrupted() )
+                throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Wait until the buffer holds data.
+     *
+     * @return The current read count or -1 if the pipe was closed and
+     * no data is left.
+     * @throws IOException If the thread was interrupted.
+     */
+    private long awaitAvailable() throws IOException
+    {
+        long read = (long)READ_COUNT.getOpaque( this );
+
+        while ( true )
+        {
+            if ( (long)WRITE_COUNT.getVolatile( this ) != read )
+                return read;
+
+            if ( _closed )
+            {
+                // Data may have been written before the close.
+                if ( (long)WRITE_COUNT.getVolatile( this ) != read )
+                    return read;
+                return -1;
+            }
+
+            _parkedReader = Thread.currentThread();
+            try
+            {
+                // Check again after announcing that we park. The writer
+                // checks for a parked reader after it published its count.
+                if ( ! _closed &&
+                        (long)WRITE_COUNT.getVolatile( this ) == read )
+                    LockSupport.park( this );
+            }
+            finally
+            {
+                _parkedReader = null;
+            }
+
+            if ( Thread.interrupted() )
+                throw new InterruptedIOException();
+        }
+    }
+
+    private void publishWrite( long written )
+    {
+        WRITE_COUNT.setVolatile( this, written );
+
+        var reader = _parkedReader;
+        if ( reader != null )
+            LockSupport.unpark( reader );
+    }
+
+    private void publishRead( long read )
+    {
+        READ_COUNT.setVolatile( this, read );
+
+        var writer = _parkedWriter;
+        if ( writer != null )
+            LockSupport.unpark( writer );
+    }
+
+    /**
+     * Copy into the ring buffer, handling the wrap-around.
+     */
+    private void copyIn( byte[] source, int sourceOffset, int position, int count )
+    {
+        int first = Math.min( count, _buffer.length - position );
+
+        System.arraycopy( source, sourceOffset, _buffer, position, first );
+        System.arraycopy( source, sourceOffset + first, _buffer, 0, count - first );
+    }
+
+    /**
+     * Copy from the ring buffer, handling the wrap-around.
+     */
+    private void copyOut( int position, byte[] target, int targetOffset, int count )
+    {
+        int first = Math.min( count, _buffer.length - position );
+
+        System.arraycopy( _buffer, position, target, targetOffset, first );
+        System.arraycopy( _buffer, 0, target, targetOffset + first, count - first );
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
+import org.smack.util.JavaUtil;
 import org.smack.util.ReflectionUtil;
 import org.smack.util.ServiceManager;
 import org.smack.util.StringUtil;
@@ -284,15 +285,39 @@ public class ResourceManager
             Field f,
             String resource )
     {
-        var value = _converters.convert(
-                f.getType(),
-                resource );
+        var type = f.getType();
+
+        // Convert outside of the try, conversion errors are propagated
+        // unchanged.  Primitives are converted without boxing.
+        JavaUtil.Fx injection;
+
+        if ( type == int.class )
+        {
+            int value = _converters.convertInt( resource );
+            injection = () -> f.setInt( instance, value );
+        }
+        else if ( type == long.class )
+        {
+            long value = _converters.convertLong( resource );
+            injection = () -> f.setLong( instance, value );
+        }
+        else if ( type == double.class )
+        {
+            double value = _converters.convertDouble( resource );
+            injection = () -> f.setDouble( instance, value );
+        }
+        else
+        {
+            var value = _converters.convert( type, resource );
+            injection = () -> f.set( instance, value );
+        }
+
         try
         {
             if ( ! f.canAccess( instance ) )
                 f.setAccessible( true );
 
-            f.set( instance, value );
+            injection.call();
         }
         catch ( Exception e )
         {
@@ -0,0 +1,610 @@
+/**
+ * $Id$
+ *
+ * Unpublished work.
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Evaluates a subset of xpath on a streaming parser.  The document is
+ * never held in memory, the memory used is bounded by the nesting depth
+ * of the document and the size of the selected values.
+ * <p>
+ * Supported are absolute paths of child steps with an optional final
+ * attribute step, like {@code /a/b/@c}.  A step is an element name or
+ * {@code *}, optionally followed by predicates on the position
+ * {@code [2]} or on an attribute value {@code [@name='value']}.  Names may
+ * be qualified with the namespace prefixes declared in the document.  An
+ * element selects its text content, an attribute its value.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public final class StreamingXPath
+{
+    private static final XMLInputFactory FACTORY;
+
+    static
+    {
+        FACTORY = XMLInputFactory.newInstance();
+        // Like XmlUtil, ignore dtds.
+        FACTORY.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+        FACTORY.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+    }
+
+    /**
+     * A possibly prefixed name or {@code *}.
+     */
+    private static final class Name
+    {
+        private final String _prefix;
+        private final String _localName;
+
+        Name( String name )
+        {
+            int colon = name.indexOf( ':' );
+
+            _prefix = colon < 0 ?
+                    null :
+                    name.substring( 0, colon );
+            _localName = colon < 0 ?
+                    name :
+                    name.substring( colon + 1 );
+        }
+
+        boolean isWildcard()
+        {
+            return "*".equals( _localName ) && _prefix == null;
+        }
+
+        /**
+         * Match against a name in the passed reader's context.  A prefix
+         * not declared in the context matches no name.
+         */
+        boolean matches(
+                XMLStreamReader reader,
+                String namespace,
+                String localName )
+        {
+            if ( isWildcard() )
+                return true;
+            if ( ! _localName.equals( localName ) )
+                return false;
+            if ( _prefix == null )
+                return normalize( namespace ) == null;
+
+            String expected = normalize(
+                    reader.getNamespaceContext().getNamespaceURI( _prefix ) );
+
+            return expected != null && expected.equals( normalize( namespace ) );
+        }
+
+        private static String normalize( String namespace )
+        {
+            return namespace == null || namespace.isEmpty() ?
+                    null :
+                    namespace;
+        }
+    }
+
+    /**
+     * A step predicate.
+     */
+    private static final class Predicate
+    {
+        /**
+         * The position, or zero for an attribute predicate.
+         */
+        private final int _position;
+        private final Name _attribute;
+        private final String _value;
+
+        Predicate( int position )
+        {
+            _position = position;
+            _attribute = null;
+            _value = null;
+        }
+
+        Predicate( Name attribute, String value )
+        {
+            _position = 0;
+            _attribute = attribute;
+            _value = value;
+        }
+    }
+
+    /**
+     * An element step.
+     */
+    private static final class Step
+    {
+        private final Name _name;
+        private final Predicate[] _predicates;
+
+        Step( Name name, List<Predicate> predicates )
+        {
+            _name = name;
+            _predicates = predicates.toArray( new Predicate[0] );
+        }
+    }
+
+    private final String _expression;
+    private final Step[] _steps;
+
+    /**
+     * The final attribute step, null if the path selects elements.
+     */
+    private final Name _attribute;
+
+    private StreamingXPath( String expression, List<Step> steps, Name attribute )
+    {
+        _expression = expression;
+        _steps = steps.toArray( new Step[0] );
+        _attribute = attribute;
+    }
+
+    /**
+     * Compile an expression.
+     *
+     * @param expression The expression.
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the expression is not in the
+     * supported subset.
+     */
+    public static StreamingXPath compile( String expression )
+    {
+        return new Parser( expression ).parse();
+    }
+
+    /**
+     * Evaluate the expression against a document.  The results are
+     * computed while the returned stream is consumed.  The passed stream
+     * is closed when the returned stream is exhausted or closed, or if
+     * this operation fails.  Parsing errors are reported as
+     * {@link UncheckedIOException}.
+     *
+     * @param xmlDocument The document.
+     * @return The selected values in document order.
+     * @throws XMLStreamException If the document cannot be read.
+     */
+    public Stream<String> evaluate( InputStream xmlDocument )
+        throws XMLStreamException
+    {
+        XMLStreamReader reader;
+
+        try
+        {
+            reader = FACTORY.createXMLStreamReader( xmlDocument );
+        }
+        catch ( XMLStreamException | RuntimeException e )
+        {
+            try
+            {
+                xmlDocument.close();
+            }
+            catch ( IOException suppressed )
+            {
+                e.addSuppressed( suppressed );
+            }
+            throw e;
+        }
+
+        var evaluation = new Evaluation( reader, xmlDocument );
+
+        return StreamSupport.stream( evaluation, false )
+                .onClose( evaluation::close );
+    }
+
+    @Override
+    public String toString()
+    {
+        return _expression;
+    }
+
+    /**
+     * The state of a single evaluation.
+     */
+    private final class Evaluation
+        extends Spliterators.AbstractSpliterator<String>
+    {
+        private final XMLStreamReader _reader;
+        private final InputStream _input;
+
+        /**
+         * The depth of the current element.  The root is at depth one.
+         */
+        private int _depth;
+
+        /**
+         * The number of leading steps matched by the current element and
+         * its ancestors.
+         */
+        private int _matched;
+
+        /**
+         * Per step and predicate the number of siblings that passed the
+         * preceding tests.  Used by position predicates.
+         */
+        private final int[][] _counters = new int[ _steps.length ][];
+
+        /**
+         * The text of the selected element if collecting, otherwise null.
+         */
+        private StringBuilder _text;
+
+        private boolean _closed;
+
+        Evaluation( XMLStreamReader reader, InputStream input )
+        {
+            super( Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL );
+
+            _reader = reader;
+            _input = input;
+
+            for ( int i = 0 ; i < _steps.length ; i++ )
+                _counters[i] = new int[ _steps[i]._predicates.length ];
+        }
+
+        @Override
+        public boolean tryAdvance( Consumer<? super String> action )
+        {
+            try
+            {
+                while ( ! _closed && _reader.hasNext() )
+                {
+                    String result = next( _reader.next() );
+
+                    if ( result != null )
+                    {
+                        action.accept( result );
+                        return true;
+                    }
+                }
+            }
+            catch ( XMLStreamException e )
+            {
+                close();
+                throw new UncheckedIOException(
+                        new IOException( e.getMessage(), e ) );
+            }
+
+            close();
+            return false;
+        }
+
+        /**
+         * Process a parser event.
+         *
+         * @return A selected value or null.
+         */
+        private String next( int event )
+        {
+            switch ( event )
+            {
+            case XMLStreamConstants.START_ELEMENT:
+                return startElement();
+
+            case XMLStreamConstants.END_ELEMENT:
+                return endElement();
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if ( _text != null )
+                    _text.append(
+                            _reader.getTextCharacters(),
+                            _reader.getTextStart(),
+                            _reader.getTextLength() );
+                return null;
+
+            default:
+                return null;
+            }
+        }
+
+        private String startElement()
+        {
+            _depth++;
+
+            if ( _matched != _depth - 1 || _depth > _steps.length )
+                return null;
+
+            int step = _depth - 1;
+
+            if ( ! matches( step ) )
+                return null;
+
+            _matched = _depth;
+
+            if ( _depth < _steps.length )
+            {
+                // Restart the position counting for the children.
+                Arrays.fill( _counters[_depth], 0 );
+                return null;
+            }
+
+            if ( _attribute == null )
+            {
+                _text = new StringBuilder();
+                return null;
+            }
+
+            return attribute( _attribute );
+        }
+
+        private String endElement()
+        {
+            String result = null;
+
+            if ( _text != null && _matched == _depth && _depth == _steps.length )
+            {
+                result = _text.toString();
+                _text = null;
+            }
+
+            if ( _matched == _depth )
+                _matched--;
+
+            _depth--;
+
+            return result;
+        }
+
+        /**
+         * Test the current element against a step.
+         */
+        private boolean matches( int stepIndex )
+        {
+            var step = _steps[stepIndex];
+
+            if ( ! step._name.matches(
+                    _reader,
+                    _reader.getNamespaceURI(),
+                    _reader.getLocalName() ) )
+                return false;
+
+            for ( int i = 0 ; i < step._predicates.length ; i++ )
+            {
+                var predicate = step._predicates[i];
+
+                if ( predicate._attribute != null )
+                {
+                    if ( ! predicate._value.equals( attribute( predicate._attribute ) ) )
+                        return false;
+                }
+                else if ( ++_counters[stepIndex][i] != predicate._position )
+                    return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Get an attribute value of the current element.
+         *
+         * @return The value or null if the element has no such attribute.
+         */
+        private String attribute( Name name )
+        {
+            for ( int i = 0 ; i < _reader.getAttributeCount() ; i++ )
+            {
+                if ( name.matches(
+                        _reader,
+                        _reader.getAttributeNamespace( i ),
+                        _reader.getAttributeLocalName( i ) ) )
+                    return _reader.getAttributeValue( i );
+            }
+
+            return null;
+        }
+
+        void close()
+        {
+            if ( _closed )
+                return;
+
+            _closed = true;
+
+            try
+            {
+                _reader.close();
+            }
+            catch ( XMLStreamException ignored )
+            {
+            }
+            finally
+            {
+                try
+                {
+                    _input.close();
+                }
+                catch ( IOException ignored )
+                {
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses an expression of the supported subset.
+     */
+    private static final class Parser
+    {
+        private final String _expression;
+        private int _position;
+
+        Parser( String expression )
+        {
+            _expression = expression.trim();
+        }
+
+        StreamingXPath parse()
+        {
+            var steps = new ArrayList<Step>();
+            Name attribute = null;
+
+            if ( _position == _expression.length() )
+                throw error( "Empty expression" );
+
+            while ( _position < _expression.length() )
+            {
+                if ( attribute != null )
+                    throw error( "Attribute step must be last" );
+
+                expect( '/' );
+
+                if ( peek() == '/' )
+                    throw error( "Descendant axis not supported" );
+
+                if ( peek() == '@' )
+                {
+                    _position++;
+                    attribute = new Name( name() );
+                    if ( attribute.isWildcard() )
+                        throw error( "Attribute wildcard not supported" );
+                    continue;
+                }
+
+                var name = new Name( name() );
+                var predicates = new ArrayList<Predicate>();
+
+                while ( peek() == '[' )
+                {
+                    _position++;
+                    predicates.add( predicate() );
+                    expect( ']' );
+                }
+
+                steps.add( new Step( name, predicates ) );
+            }
+
+            if ( steps.isEmpty() )
+                throw error( "No element step" );
+
+            return new StreamingXPath( _expression, steps, attribute );
+        }
+
+        private Predicate predicate()
+        {
+            skipSpace();
+
+            if ( peek() == '@' )
+            {
+                _position++;
+                var attribute = new Name( name() );
+                skipSpace();
+                expect( '=' );
+                skipSpace();
+                var value = literal();
+                skipSpace();
+                return new Predicate( attribute, value );
+            }
+
+            int start = _position;
+            while ( Character.isDigit( peek() ) )
+                _position++;
+
+            if ( start == _position )
+                throw error( "Unsupported predicate" );
+
+            int result = Integer.parseInt(
+                    _expression.substring( start, _position ) );
+            if ( result < 1 )
+                throw error( "Position must be > 0" );
+
+            skipSpace();
+            return new Predicate( result );
+        }
+
+        private String name()
+        {
+            int start = _position;
+
+            if ( peek() == '*' )
+            {
+                _position++;
+                return "*";
+            }
+
+            while ( _position < _expression.length() )
+            {
+                char c = _expression.charAt( _position );
+
+                if ( ! Character.isLetterOrDigit( c ) &&
+                        c != '_' && c != '-' && c != '.' && c != ':' )
+                    break;
+
+                _position++;
+            }
+
+            if ( start == _position )
+                throw error( "Name expected" );
+
+            return _expression.substring( start, _position );
+        }
+
+        private String literal()
+        {
+            char quote = peek();
+
+            if ( quote != '\'' && quote != '"' )
+                throw error( "Literal expected" );
+
+            int end = _expression.indexOf( quote, _position + 1 );
+            if ( end < 0 )
+                throw error( "Unterminated literal" );
+
+            var result = _expression.substring( _position + 1, end );
+            _position = end + 1;
+            return result;
+        }
+
+        private char peek()
+        {
+            return _position < _expression.length() ?
+                    _expression.charAt( _position ) :
+                    0;
+        }
+
+        private void expect( char c )
+        {
+            if ( peek() != c )
+                throw error( "'" + c + "' expected" );
+            _position++;
+        }
+
+        private void skipSpace()
+        {
+            while ( Character.isWhitespace( peek() ) )
+                _position++;
+        }
+
+        private IllegalArgumentException error( String message )
+        {
+            return new IllegalArgumentException( String.format(
+                    "%s at %d: %s",
+                    message,
+                    _position,
+                    _expression ) );
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * $Id$
+ *
+ * Unpublished work.
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.smack.util.StringUtil;
+
+/**
+ * A cache of compiled stylesheets.  Stylesheet files are keyed by their
+ * path and recompiled if modified.  Stylesheet content is keyed by its
+ * hash.  The least recently used entries are evicted if the cache
+ * exceeds its capacity.
+ *
+ * @author Michael Binz
+ */
+final class TemplatesCache
+{
+    /**
+     * A cached stylesheet.
+     */
+    private static final class Compiled
+    {
+        final Templates _templates;
+        final long _lastModified;
+        final long _length;
+
+        Compiled( Templates templates, long lastModified, long length )
+        {
+            _templates = templates;
+            _lastModified = lastModified;
+            _length = length;
+        }
+    }
+
+    private final Map<String, Compiled> _cache;
+
+    /**
+     * Create an instance.
+     *
+     * @param capacity The maximum number of cached stylesheets.
+     */
+    TemplatesCache( int capacity )
+    {
+        _cache = new LinkedHashMap<>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Compiled> eldest )
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the compiled stylesheet for a file.  The system id of the
+     * stylesheet is set to the file's path.
+     *
+     * @param stylesheet The stylesheet file.
+     * @return The compiled stylesheet.
+     * @throws TransformerConfigurationException If the stylesheet
+     * cannot be compiled.
+     */
+    Templates get( File stylesheet )
+        throws TransformerConfigurationException
+    {
+        String key =
+                "file:" + stylesheet.getAbsolutePath();
+        long lastModified =
+                stylesheet.lastModified();
+        long length =
+                stylesheet.length();
+
+        var compiled = lookup( key );
+
+        if ( compiled != null &&
+                compiled._lastModified == lastModified &&
+                compiled._length == length )
+            return compiled._templates;
+
+        var source = new StreamSource( stylesheet );
+        source.setSystemId( stylesheet.getPath() );
+
+        var result = compile( source );
+
+        store( key, new Compiled( result, lastModified, length ) );
+
+        return result;
+    }
+
+    /**
+     * Get the compiled stylesheet for the passed content.
+     *
+     * @param stylesheet The stylesheet content.
+     * @param systemId An optional system id.  Pass null if not needed.
+     * @return The compiled stylesheet.
+     * @throws TransformerConfigurationException If the stylesheet
+     * cannot be compiled.
+     */
+    Templates get( byte[] stylesheet, String systemId )
+        throws TransformerConfigurationException
+    {
+        String key = String.format(
+                "sha-256:%s:%s",
+                StringUtil.toHex( hash( stylesheet ) ),
+                Objects.toString( systemId, StringUtil.EMPTY_STRING ) );
+
+        var compiled = lookup( key );
+
+        if ( compiled != null )
+            return compiled._templates;
+
+        var source = new StreamSource(
+                new ByteArrayInputStream( stylesheet ) );
+
+        if ( StringUtil.hasContent( systemId ) )
+            source.setSystemId( systemId );
+
+        var result = compile( source );
+
+        store( key, new Compiled( result, 0, stylesheet.length ) );
+
+        return result;
+    }
+
+    /**
+     * @return The number of cached stylesheets.
+     */
+    synchronized int size()
+    {
+        return _cache.size();
+    }
+
+    private synchronized Compiled lookup( String key )
+    {
+        return _cache.get( key );
+    }
+
+    private synchronized void store( String key, Compiled compiled )
+    {
+        _cache.put( key, compiled );
+    }
+
+    /**
+     * Compile a stylesheet.  Done outside the lock, a stylesheet requested
+     * concurrently may be compiled more than once.
+     */
+    private static Templates compile( Source source )
+        throws TransformerConfigurationException
+    {
+        return TransformerFactory.newInstance().newTemplates( source );
+    }
+
+    private static byte[] hash( byte[] content )
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" ).digest( content );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // Every Java platform supports SHA-256.
+            throw new AssertionError( e );
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * $Id$
+ *
+ * Unpublished work.
+ * Copyright © 2026 Michael G. Binz
+ */
+package org.smack.util.xml;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * A set of xpath expressions that is compiled once and evaluated against
+ * any number of documents.
+ * <p>
+ * Namespace prefixes in the expressions are resolved using the namespaces
+ * declared in the evaluated document.  Since prefixes are resolved when an
+ * expression is compiled, the expressions are compiled once per distinct
+ * set of namespace declarations.  Documents sharing their declarations
+ * share the compiled expressions.  The compiled expressions of the
+ * {@value #CAPACITY} most recently used declaration sets are kept.
+ * </p>
+ * <p>
+ * Instances are not thread safe.  The document builder used to parse
+ * streams, the xpath compiler and the cache are reused across calls, so
+ * each thread has to use its own instance.
+ * </p>
+ *
+ * @author Michael Binz
+ */
+public final class XPathQuery
+{
+    private final String[] _expressions;
+
+    private final XPath _xpath =
+            XPathFactory.newInstance().newXPath();
+
+    /**
+     * The maximum number of cached namespace declaration sets.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * The compiled expressions per namespace declarations.  The least
+     * recently used entries are evicted if the cache exceeds its capacity.
+     */
+    private final Map<NamespaceContextImpl, XPathExpression[]> _compiled =
+            new LinkedHashMap<>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<NamespaceContextImpl, XPathExpression[]> eldest )
+        {
+            return size() > CAPACITY;
+        }
+    };
+
+    private DocumentBuilder _builder;
+
+    /**
+     * Create an instance.
+     *
+     * @param expressions The xpath expressions.
+     */
+    public XPathQuery( String ... expressions )
+    {
+        _expressions = Arrays.copyOf( expressions, expressions.length );
+    }
+
+    /**
+     * @return The number of expressions.
+     */
+    public int size()
+    {
+        return _expressions.length;
+    }
+
+    /**
+     * Evaluate the expressions against an XML-document.  The passed stream
+     * is closed.
+     *
+     * @param xmlDocument The document.
+     * @return The results of the expressions in a list.  The empty
+     * string if an expression did not select data.
+     * @throws Exception In case of an error.
+     */
+    public List<String> evaluate( InputStream xmlDocument )
+            throws Exception
+    {
+        return evaluate( parse( xmlDocument ) );
+    }
+
+    /**
+     * Evaluate the expressions against an XML-document.
+     *
+     * @param xmlDocument The document.
+     * @return The results of the expressions in a list.  The empty
+     * string if an expression did not select data.
+     * @throws Exception In case of an error.
+     */
+    public List<String> evaluate( Document xmlDocument )
+            throws Exception
+    {
+        var result =
+                new ArrayList<String>( _expressions.length );
+
+        for ( var c : compiled( xmlDocument ) )
+        {
+            result.add(
+                    c.evaluate( xmlDocument, XPathConstants.STRING ).toString() );
+        }
+
+        return result;
+    }
+
+    /**
+     * Evaluate the expressions against an XML-document.  The passed stream
+     * is closed.
+     *
+     * @param xmlDocument The document.
+     * @return Per expression the text content of the selected nodes.
+     * @throws Exception In case of an error.
+     */
+    public List<List<String>> evaluateNodes( InputStream xmlDocument )
+            throws Exception
+    {
+        return evaluateNodes( parse( xmlDocument ) );
+    }
+
+    /**
+     * Evaluate the expressions against an XML-document.
+     *
+     * @param xmlDocument The document.
+     * @return Per expression the text content of the selected nodes.
+     * @throws Exception In case of an error.
+     */
+    public List<List<String>> evaluateNodes( Document xmlDocument )
+            throws Exception
+    {
+        var result =
+                new ArrayList<List<String>>( _expressions.length );
+
+        for ( var c : compiled( xmlDocument ) )
+        {
+            NodeList x =
+                    (NodeList)c.evaluate( xmlDocument, XPathConstants.NODESET );
+
+            var list = new ArrayList<String>( x.getLength() );
+
+            for ( int i = 0 ; i < x.getLength() ; i++ )
+                list.add( x.item( i ).getTextContent()  );
+
+            result.add( list );
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the expressions compiled for the namespaces of the passed
+     * document.
+     */
+    private XPathExpression[] compiled( Document xmlDocument )
+            throws Exception
+    {
+        var namespaces =
+                XmlUtil.getNamespaces( xmlDocument );
+        var result =
+                _compiled.get( namespaces );
+
+        if ( result != null )
+            return result;
+
+        result = compile( namespaces );
+        _compiled.put( namespaces, result );
+
+        return result;
+    }
+
+    private XPathExpression[] compile( NamespaceContextImpl namespaces )
+            throws XPathExpressionException
+    {
+        _xpath.setNamespaceContext( namespaces );
+
+        var result = new XPathExpression[ _expressions.length ];
+
+        for ( int i = 0 ; i < result.length ; i++ )
+            result[i] = _xpath.compile( _expressions[i] );
+
+        return result;
+    }
+
+    private Document parse( InputStream xmlDocument )
+            throws Exception
+    {
+        try ( xmlDocument )
+        {
+            if ( _builder == null )
+            {
+                DocumentBuilderFactory factory =
+                        DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware( true );
+
+                _builder = factory.newDocumentBuilder();
+            }
+            else
+                _builder.reset();
+
+            return _builder.parse( xmlDocument );
+        }
+    }
+}
@@ -11,33 +11,33 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.stream.Stream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Result;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
 
 import org.smack.util.Disposer;
-import org.smack.util.StringUtil;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 /**
  * XML utility operations.
@@ -64,6 +64,31 @@ public class XmlUtil
         }
     };
 
+    /**
+     * The compiled stylesheets.
+     */
+    private static final TemplatesCache TEMPLATES =
+            new TemplatesCache( 64 );
+
+    /**
+     * A parser per thread for the transformation input.  Reset before
+     * each use.
+     */
+    private static final ThreadLocal<SAXParser> SAX_PARSER =
+            ThreadLocal.withInitial( () -> {
+                try
+                {
+                    SAXParserFactory factory =
+                            SAXParserFactory.newInstance();
+                    factory.setNamespaceAware( true );
+                    return factory.newSAXParser();
+                }
+                catch ( ParserConfigurationException | SAXException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            } );
+
     /**
      * Transform a file based on an XSLT transformation. Access to
      * non-existent dtds is ignored.
@@ -121,12 +146,115 @@ public class XmlUtil
             Map<String,Object> parameters )
                     throws Exception
     {
-        return transformImpl(
-                new FileInputStream( stylesheet ),
-                new FileInputStream( datafile ),
-                stylesheet.getPath(),
-                parameters );
+        ByteArrayOutputStream bos =
+                new ByteArrayOutputStream();
+
+        transform(
+                stylesheet,
+                datafile,
+                parameters,
+                new StreamResult( bos ) );
+
+        return bos.toString();
+    }
+
+    /**
+     * Transform a file based on an XSLT transformation and write the
+     * result to the passed target.  Access to non-existent dtds is
+     * ignored.  The stylesheet's systemId is set, so that access on the
+     * stylesheet via the xls 'document( '' )' operation works.
+     *
+     * @param stylesheet The transformation.
+     * @param datafile The file to transform.
+     * @param parameters Parameters for the stylesheet.
+     * @param target Receives the result.  Not closed.
+     * @throws Exception In case of an error.
+     */
+    public static void transform(
+            File stylesheet,
+            File datafile,
+            Map<String,Object> parameters,
+            OutputStream target )
+                    throws Exception
+    {
+        transform(
+                stylesheet,
+                datafile,
+                parameters,
+                new StreamResult( target ) );
+    }
+
+    /**
+     * Transform a file based on an XSLT transformation and write the
+     * result to the passed target.  Access to non-existent dtds is
+     * ignored.  The stylesheet's systemId is set, so that access on the
+     * stylesheet via the xls 'document( '' )' operation works.
+     *
+     * @param stylesheet The transformation.
+     * @param datafile The file to transform.
+     * @param parameters Parameters for the stylesheet.
+     * @param target Receives the result.
+     * @throws Exception In case of an error.
+     */
+    public static void transform(
+            File stylesheet,
+            File datafile,
+            Map<String,Object> parameters,
+            Result target )
+                    throws Exception
+    {
+        transform(
+                compile( stylesheet ),
+                datafile,
+                parameters,
+                target );
+    }
+
+    /**
+     * Get the compiled form of a stylesheet.  The result is thread safe
+     * and can be used for any number of transformations.  Compiled
+     * stylesheets are cached and recompiled if the file is modified.
+     *
+     * @param stylesheet The transformation.
+     * @return The compiled stylesheet.
+     * @throws Exception In case of an error.
+     */
+    public static Templates compile( File stylesheet )
+            throws Exception
+    {
+        return TEMPLATES.get( stylesheet );
+    }
 
+    /**
+     * Transform a file based on a compiled XSLT transformation and write
+     * the result to the passed target.  Access to non-existent dtds is
+     * ignored.
+     *
+     * @param stylesheet The compiled transformation.
+     * @param datafile The file to transform.
+     * @param parameters Parameters for the stylesheet.
+     * @param target Receives the result.
+     * @throws Exception In case of an error.
+     * @see #compile(File)
+     */
+    public static void transform(
+            Templates stylesheet,
+            File datafile,
+            Map<String,Object> parameters,
+            Result target )
+                    throws Exception
+    {
+        try ( InputStream data = new FileInputStream( datafile ) )
+        {
+            var input = new InputSource( data );
+            input.setSystemId( datafile.toURI().toString() );
+
+            transformImpl(
+                    stylesheet,
+                    input,
+                    parameters,
+                    target );
+        }
     }
 
     /**
@@ -151,6 +279,32 @@ public class XmlUtil
                 parameters );
     }
 
+    /**
+     * Transform xml based on an XSLT transformation and write the result
+     * to the passed target.  Access to non-existent dtds is ignored.
+     * The passed input streams get closed after processing.
+     *
+     * @param stylesheet The stylesheet.
+     * @param datafile The input to process.
+     * @param parameters Parameters to be passed to the stylesheet.
+     * @param target Receives the result.  Not closed.
+     * @throws Exception In case of an error.
+     */
+    public static void transform(
+            InputStream stylesheet,
+            InputStream datafile,
+            Map<String,Object> parameters,
+            OutputStream target )
+                    throws Exception
+    {
+        transformImpl(
+                stylesheet,
+                datafile,
+                null,
+                parameters,
+                new StreamResult( target ) );
+    }
+
     /**
      * Internal implementation of transform including resource management.
      * The passed input streams get closed after processing.
@@ -168,50 +322,88 @@ public class XmlUtil
             String systemId,
             Map<String,Object> parameters )
                     throws Exception
+    {
+        ByteArrayOutputStream bos =
+                new ByteArrayOutputStream();
+
+        transformImpl(
+                stylesheet,
+                datafile,
+                systemId,
+                parameters,
+                new StreamResult( bos ) );
+
+        return bos.toString();
+    }
+
+    /**
+     * Internal implementation of transform including resource management.
+     * The passed input streams get closed after processing.  The compiled
+     * stylesheet is cached based on the stylesheet's content.
+     *
+     * @param stylesheet The stylesheet.
+     * @param datafile The input to process.
+     * @param systemId An optional system id.  Pass null if not needed.
+     * @param parameters Parameters to be passed to the stylesheet.
+     * @param target Receives the result.
+     * @throws Exception In case of an error.
+     */
+    private static void transformImpl(
+            InputStream stylesheet,
+            InputStream datafile,
+            String systemId,
+            Map<String,Object> parameters,
+            Result target )
+                    throws Exception
     {
         try ( Disposer d = new Disposer() )
         {
             d.register( stylesheet );
             d.register( datafile );
 
-            DocumentBuilderFactory factory =
-                    DocumentBuilderFactory.newInstance();
-            ByteArrayOutputStream bos =
-                    new ByteArrayOutputStream();
-            DocumentBuilder builder =
-                    factory.newDocumentBuilder();
-
-            builder.setEntityResolver(
-                    EMPTY_DTD_RESOLVER );
-            Document document =
-                    builder.parse(datafile);
-            TransformerFactory tFactory =
-                    TransformerFactory.newInstance();
-            StreamSource stylesource =
-                    new StreamSource(stylesheet);
-
-            if ( StringUtil.hasContent( systemId ) )
-                stylesource.setSystemId(
-                        systemId );
-
-            Transformer transformer =
-                    tFactory.newTransformer(stylesource);
-
-            parameters.forEach(
-                    (k,v) -> transformer.setParameter( k, v ) );
-
-            DOMSource source =
-                    new DOMSource(document);
-            StreamResult result =
-                    new StreamResult(bos);
-            transformer.transform(
-                    source,
-                    result);
-
-            return bos.toString();
+            transformImpl(
+                    TEMPLATES.get( stylesheet.readAllBytes(), systemId ),
+                    new InputSource( datafile ),
+                    parameters,
+                    target );
         }
     }
 
+    /**
+     * Internal implementation of transform.  The input is parsed while
+     * transformed, no document tree is built.
+     *
+     * @param stylesheet The compiled stylesheet.
+     * @param datafile The input to process.
+     * @param parameters Parameters to be passed to the stylesheet.
+     * @param target Receives the result.
+     * @throws Exception In case of an error.
+     */
+    private static void transformImpl(
+            Templates stylesheet,
+            InputSource datafile,
+            Map<String,Object> parameters,
+            Result target )
+                    throws Exception
+    {
+        SAXParser parser =
+                SAX_PARSER.get();
+        parser.reset();
+        XMLReader reader =
+                parser.getXMLReader();
+        reader.setEntityResolver(
+                EMPTY_DTD_RESOLVER );
+        Transformer transformer =
+                stylesheet.newTransformer();
+
+        parameters.forEach(
+                (k,v) -> transformer.setParameter( k, v ) );
+
+        transformer.transform(
+                new SAXSource( reader, datafile ),
+                target );
+    }
+
     /**
      * Evaluate an xpath against an XML-document.
      *
@@ -254,105 +446,12 @@ public class XmlUtil
                 .get( 0 );
     }
 
-    /**
-     * Evaluate a set of xpath-expressions against an XML-document.
-     *
-     * @param xmlDocument The document.
-     * @param expressions The xpath.
-     * @return The result of the expressions in a list.
-     * @throws Exception In case of an error.
-     * @see #getXPath(File, String)
-     */
-    private static List<String> getXPath(
-            Document xmlDocument,
-            String ... expressions )
-                    throws Exception
-    {
-        XPathFactory xPathfactory =
-                XPathFactory.newInstance();
-        XPath xpath =
-                xPathfactory.newXPath();
-
-        xpath.setNamespaceContext(
-                getNamespaces( xmlDocument ) );
-
-        var result =
-                new ArrayList<String>();
-
-        for ( String c : expressions )
-        {
-            XPathExpression expr =
-                    xpath.compile( c );
-
-            result.add(
-                    expr.evaluate( xmlDocument, XPathConstants.STRING ).toString() );
-        }
-
-        return result;
-    }
-
-    /**
-     * Evaluate a set of xpath-expressions against an XML-document.
-     *
-     * @param xmlDocument The document.
-     * @param expressions The xpath.
-     * @return The result of the expressions in a list.
-     * @throws Exception In case of an error.
-     * @see #getXPath(File, String)
-     */
-    private static List<List<String>> getXPathNodes(
-            Document xmlDocument,
-            String ... expressions )
-                    throws Exception
-    {
-        XPathFactory xPathfactory =
-                XPathFactory.newInstance();
-        XPath xpath =
-                xPathfactory.newXPath();
-
-        xpath.setNamespaceContext(
-                getNamespaces( xmlDocument ) );
-
-        var result =
-                new ArrayList<List<String>>();
-
-        for ( String c : expressions )
-        {
-            XPathExpression expr =
-                    xpath.compile( c );
-
-            NodeList x =
-                    (NodeList)expr.evaluate( xmlDocument, XPathConstants.NODESET );
-
-            var list = new ArrayList<String>( x.getLength() );
-
-            for ( int i = 0 ; i < x.getLength() ; i++ )
-                list.add( x.item( i ).getTextContent()  );
-
-            result.add( list );
-        }
-
-        return result;
-    }
-
     public static List<String> getXPath(
             InputStream xmlDocument,
             String ... expressions
             ) throws Exception
     {
-        try ( xmlDocument )
-        {
-            DocumentBuilderFactory factory =
-                    DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware( true );
-
-            DocumentBuilder builder =
-                    factory.newDocumentBuilder();
-            Document doc =
-                    builder.parse( xmlDocument );
-
-            return getXPath( doc, expressions );
-        }
+        return new XPathQuery( expressions ).evaluate( xmlDocument );
     }
 
     public static List<List<String>> getXPathNodes(
@@ -360,19 +459,26 @@ public class XmlUtil
             String ... expressions
             ) throws Exception
     {
-        try ( xmlDocument )
-        {
-            DocumentBuilderFactory factory =
-                    DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware( true );
-
-            DocumentBuilder builder =
-                    factory.newDocumentBuilder();
-            Document doc =
-                    builder.parse( xmlDocument );
+        return new XPathQuery( expressions ).evaluateNodes( xmlDocument );
+    }
 
-            return getXPathNodes( doc, expressions );
-        }
+    /**
+     * Evaluate an xpath against an XML-document without building a
+     * document tree.  Supports the subset of xpath described in
+     * {@link StreamingXPath}.  The passed stream is closed when the
+     * returned stream is exhausted or closed.
+     *
+     * @param xmlDocument The document.
+     * @param expression The xpath.
+     * @return The selected values, computed while the stream is consumed.
+     * @throws Exception In case of an error.
+     */
+    public static Stream<String> streamXPath(
+            InputStream xmlDocument,
+            String expression )
+                    throws Exception
+    {
+        return StreamingXPath.compile( expression ).evaluate( xmlDocument );
     }
 
     public static <R> R getXPathAs(
@@ -400,32 +506,76 @@ public class XmlUtil
         return result;
     }
 
-    private static NamespaceContextImpl getNamespaces( Document doc ) throws Exception
+    /**
+     * Get the namespaces declared in a document.  Walks the elements once
+     * and reads their namespace declarations.  If a prefix is declared
+     * more than once the last declaration in document order is used.  The
+     * default namespace is keyed by {@code xmlns}, the {@code xml} prefix
+     * is always contained.
+     *
+     * @param doc The document.
+     * @return The namespaces keyed by prefix.
+     */
+    static NamespaceContextImpl getNamespaces( Document doc )
     {
-        XPathFactory xPathfactory =
-                XPathFactory.newInstance();
-        XPath xpath =
-                xPathfactory.newXPath();
-
-        XPathExpression expr = xpath.compile( "//namespace::*" );
-
-        NodeList x = (NodeList)expr.evaluate( doc, XPathConstants.NODESET );
-
         NamespaceContextImpl result =
                 new NamespaceContextImpl();
 
-        for ( int i = 0 ; i < x.getLength() ; i++ )
+        result.put(
+                XMLConstants.XML_NS_PREFIX,
+                XMLConstants.XML_NS_URI );
+
+        Node root = doc.getDocumentElement();
+        Node node = root;
+
+        while ( node != null )
         {
-            var q =
-                    x.item( i );
-            result.put(
-                    q.getLocalName(),
-                    q.getNodeValue() );
+            if ( node.getNodeType() == Node.ELEMENT_NODE )
+            {
+                addNamespaces( node.getAttributes(), result );
+
+                if ( node.hasChildNodes() )
+                {
+                    node = node.getFirstChild();
+                    continue;
+                }
+            }
+
+            while ( node != root && node.getNextSibling() == null )
+                node = node.getParentNode();
+
+            node = node == root ?
+                    null :
+                    node.getNextSibling();
         }
 
         return result;
     }
 
+    /**
+     * Add the namespace declarations from the passed attributes.  Works on
+     * documents parsed with and without namespace awareness.
+     */
+    private static void addNamespaces(
+            NamedNodeMap attributes,
+            NamespaceContextImpl result )
+    {
+        for ( int i = 0 ; i < attributes.getLength() ; i++ )
+        {
+            var attribute =
+                    attributes.item( i );
+            var name =
+                    attribute.getNodeName();
+
+            if ( name.equals( XMLConstants.XMLNS_ATTRIBUTE ) )
+                result.put( name, attribute.getNodeValue() );
+            else if ( name.startsWith( XMLConstants.XMLNS_ATTRIBUTE + ":" ) )
+                result.put(
+                        name.substring( XMLConstants.XMLNS_ATTRIBUTE.length() + 1 ),
+                        attribute.getNodeValue() );
+        }
+    }
+
     private XmlUtil()
     {
         throw new AssertionError();
@@ -0,0 +1,167 @@
+package org.smack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.smack.util.FileUtil;
+
+public class CliTest
+{
+    private static final String STYLESHEET =
+            "<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>" +
+            "<xsl:output method='text'/>" +
+            "<xsl:template match='/'><xsl:value-of select='/r'/></xsl:template>" +
+            "</xsl:stylesheet>";
+
+    private Path _root;
+    private Path _stylesheet;
+    private Path _data;
+
+    @Before
+    public void makeTree() throws IOException
+    {
+        _root = Files.createTempDirectory( getClass().getSimpleName() );
+        _stylesheet = Files.writeString( _root.resolve( "style.xsl" ), STYLESHEET );
+        _data = Files.createDirectories( _root.resolve( "data" ) );
+
+        Files.writeString( _data.resolve( "a.xml" ), "<r>a</r>" );
+        Files.writeString( _data.resolve( "b.xml" ), "<r>b</r>" );
+        Files.writeString( _data.resolve( "notes.txt" ), "<r>n</r>" );
+        Files.createDirectories( _data.resolve( "sub" ) );
+        Files.writeString( _data.resolve( "sub/c.xml" ), "<r>c</r>" );
+    }
+
+    @After
+    public void deleteTree()
+    {
+        FileUtil.delete( _root.toFile() );
+    }
+
+    /**
+     * Run the cli.
+     *
+     * @return The error output.
+     */
+    private static String exec( String ... argv )
+    {
+        var originalOut = System.out;
+        var originalErr = System.err;
+        var err = new ByteArrayOutputStream();
+
+        System.setOut( new PrintStream( new ByteArrayOutputStream() ) );
+        System.setErr( new PrintStream( err ) );
+        try
+        {
+            Cli.main( argv );
+        }
+        finally
+        {
+            System.setOut( originalOut );
+            System.setErr( originalErr );
+        }
+
+        return err.toString();
+    }
+
+    private List<String> relative( List<Path> files )
+    {
+        return files.stream()
+                .map( c -> _root.relativize( c ).toString().replace( File.separatorChar, '/' ) )
+                .collect( Collectors.toList() );
+    }
+
+    @Test
+    public void testBatchBase()
+    {
+        assertEquals( _data, Cli.batchBase( _data.toString() ) );
+        assertEquals( _data, Cli.batchBase( _data + "/**.xml" ) );
+        assertEquals( _data, Cli.batchBase( _data + "/a.xml" ) );
+        assertEquals( _data, Cli.batchBase( _data + "/s*/c.xml" ) );
+        assertEquals( Paths.get( "" ), Cli.batchBase( "*.xml" ) );
+        assertEquals( Paths.get( "/" ), Cli.batchBase( "/*.xml" ) );
+    }
+
+    @Test
+    public void testBatchFiles() throws IOException
+    {
+        // A directory selects only the xml files it directly contains.
+        assertEquals(
+                List.of( "data/a.xml", "data/b.xml" ),
+                relative( Cli.batchFiles( _data, _data.toString() ) ) );
+        assertEquals(
+                List.of( "data/a.xml", "data/b.xml" ),
+                relative( Cli.batchFiles( _data, _data + "/*.xml" ) ) );
+        assertEquals(
+                List.of( "data/a.xml", "data/b.xml", "data/sub/c.xml" ),
+                relative( Cli.batchFiles( _data, _data + "/**.xml" ) ) );
+        assertEquals(
+                List.of( "data/sub/c.xml" ),
+                relative( Cli.batchFiles( _data, _data + "/s*/*.xml" ) ) );
+        assertEquals(
+                List.of( "data/b.xml" ),
+                relative( Cli.batchFiles( _data, _data + "/b.xml" ) ) );
+    }
+
+    @Test
+    public void testBatchNextToInput() throws IOException
+    {
+        assertEquals( "", exec( "xsl-batch", _stylesheet.toString(), _data.toString() ) );
+
+        assertEquals( "a", Files.readString( _data.resolve( "a.out" ) ) );
+        assertEquals( "b", Files.readString( _data.resolve( "b.out" ) ) );
+        assertFalse( Files.exists( _data.resolve( "notes.out" ) ) );
+        assertFalse( Files.exists( _data.resolve( "sub/c.out" ) ) );
+    }
+
+    @Test
+    public void testBatchTargetDirectory() throws IOException
+    {
+        var target = _root.resolve( "target" );
+
+        assertEquals( "", exec(
+                "xsl-batch",
+                "-threads=2",
+                "-extension=txt",
+                _stylesheet.toString(),
+                _data + "/**.xml",
+                target.toString() ) );
+
+        assertEquals( "a", Files.readString( target.resolve( "a.txt" ) ) );
+        assertEquals( "b", Files.readString( target.resolve( "b.txt" ) ) );
+        assertEquals( "c", Files.readString( target.resolve( "sub/c.txt" ) ) );
+        assertFalse( Files.exists( _data.resolve( "a.out" ) ) );
+    }
+
+    @Test
+    public void testBatchFailure() throws IOException
+    {
+        Files.writeString(
+                _data.resolve( "broken.xml" ),
+                "<r>broken",
+                StandardCharsets.UTF_8 );
+
+        var err = exec( "xsl-batch", _stylesheet.toString(), _data.toString() );
+
+        assertTrue( err, err.contains( "broken.xml" ) );
+        assertTrue( err, err.contains( "1 of 3 transformations failed." ) );
+
+        // No partial result is left.
+        assertFalse( Files.exists( _data.resolve( "broken.out" ) ) );
+        assertEquals( "a", Files.readString( _data.resolve( "a.out" ) ) );
+    }
+}
@@ -0,0 +1,25 @@
+package org.smack.application;
+
+/**
+ * Tests exception handling and static commands.
+ */
+public class ApplicationUnderTestException
+    extends CliApplication
+{
+    @Command
+    private void cmdThrow( String message ) throws Exception
+    {
+        throw new Exception( message );
+    }
+
+    @Command
+    private static void cmdStatic( int i )
+    {
+        System.out.printf( "%s:%d%n", "cmdStatic", i );
+    }
+
+    public static void main( String[] argv )
+    {
+        launch( ApplicationUnderTestException::new, argv );
+    }
+}
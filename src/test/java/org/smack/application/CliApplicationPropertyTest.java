@@ -3,6 +3,8 @@ package org.smack.application;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 
 import org.junit.Test;
@@ -113,4 +115,45 @@ public class CliApplicationPropertyTest
         assertEquals( 1, out.size() );
         assertEquals( "ALL", out.get( 0 ) );
     }
+
+    @Test
+    public void testSession() throws IOException
+    {
+        final var err =
+                new ArrayList<String>();
+        final var out =
+                new ArrayList<String>();
+
+        var script =
+                "# A comment.\n" +
+                "c_booleanProperty\n" +
+                "\n" +
+                "c_booleanProperty -booleanProperty\n" +
+                "unknown\n" +
+                "  c_booleanProperty  \n";
+
+        CliApplicationTest.execCli(
+                out,
+                err,
+                argv -> {
+                    try
+                    {
+                        CliApplication.launchSession(
+                                ApplicationUnderTestProperties.class,
+                                new StringReader( script ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                } );
+
+        assertEquals( 1, err.size() );
+        assertEquals( "Unknown command 'unknown'.", err.get( 0 ) );
+        assertEquals( 3, out.size() );
+        assertEquals( "false", out.get( 0 ) );
+        // The property set on the previous line is kept.
+        assertEquals( "true", out.get( 1 ) );
+        assertEquals( "true", out.get( 2 ) );
+    }
 }
@@ -280,4 +280,52 @@ public class CliApplicationTest
                 expected,
                 err.get( 0 ) );
     }
+
+    @Test
+    public void testCommandException()
+    {
+        final var err =
+                new ArrayList<String>();
+        final var out =
+                new ArrayList<String>();
+
+        execCli( out, err,
+                ApplicationUnderTestException::main,
+                "cmdThrow",
+                "donald" );
+
+        assertEquals(
+                0,
+                out.size() );
+        assertEquals(
+                1,
+                err.size() );
+        assertEquals(
+                "cmdThrow failed: donald",
+                err.get( 0 ) );
+    }
+
+    @Test
+    public void testStaticCommand()
+    {
+        final var err =
+                new ArrayList<String>();
+        final var out =
+                new ArrayList<String>();
+
+        execCli( out, err,
+                ApplicationUnderTestException::main,
+                "cmdStatic",
+                "313" );
+
+        assertEquals(
+                0,
+                err.size() );
+        assertEquals(
+                1,
+                out.size() );
+        assertEquals(
+                "cmdStatic:313",
+                out.get( 0 ) );
+    }
 }
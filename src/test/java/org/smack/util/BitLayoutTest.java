@@ -0,0 +1,125 @@
+package org.smack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BitLayoutTest
+{
+    @Test
+    public void testConsecutive()
+    {
+        // 3 + 12 + 20 + 1 bits = 36 bits, 5 bytes.
+        var layout = new BitLayout( IntegerUtil.Big, 3, 12, 20, 1 );
+
+        assertEquals( 4, layout.size() );
+        assertEquals( 36, layout.bitLength() );
+        assertEquals( 5, layout.byteLength() );
+
+        long[] values = { 0b101, 0xabc, 0x12345, 1 };
+
+        var bytes = new byte[ 6 ];
+        layout.encode( values, bytes, 1 );
+
+        // 101 101010111100 00010010001101000101 1
+        assertArrayEquals(
+                new byte[] { 0, (byte)0xb5, 0x78, 0x24, 0x68, (byte)0xb0 },
+                bytes );
+
+        assertArrayEquals( values, layout.decode( bytes, 1 ) );
+    }
+
+    @Test
+    public void testOffsets()
+    {
+        var layout = new BitLayout(
+                IntegerUtil.Little,
+                new long[]{ 20, 0, 4 },
+                new int[]{ 4, 4, 16 } );
+
+        assertEquals( 24, layout.bitLength() );
+        assertEquals( 3, layout.byteLength() );
+
+        var buffer = ByteBuffer.allocateDirect( 3 );
+        layout.encode( new long[]{ 0xa, 0x1, 0x2345 }, buffer, 0 );
+
+        assertEquals( 0x51, buffer.get( 0 ) & 0xff );
+        assertEquals( 0x34, buffer.get( 1 ) & 0xff );
+        assertEquals( 0xa2, buffer.get( 2 ) & 0xff );
+        assertEquals( 0, buffer.position() );
+
+        var target = new long[ 4 ];
+        layout.decode( buffer, 0, target );
+        assertArrayEquals( new long[]{ 0xa, 0x1, 0x2345, 0 }, target );
+    }
+
+    @Test
+    public void testMatchesGetBits()
+    {
+        var bytes = new byte[ 32 ];
+        for ( int i = 0 ; i < bytes.length ; i++ )
+            bytes[i] = (byte)(i * 37 + 11);
+
+        int[] widths = { 3, 12, 20, 64, 7, 1, 33 };
+
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            var decoded = new BitLayout( endianness, widths ).decode( bytes, 2 );
+
+            long offset = 16;
+            for ( int i = 0 ; i < widths.length ; i++ )
+            {
+                assertEquals(
+                        IntegerUtil.getBits( endianness, bytes, offset, widths[i] ),
+                        decoded[i] );
+                offset += widths[i];
+            }
+        }
+    }
+
+    @Test
+    public void testErrors()
+    {
+        try
+        {
+            new BitLayout( IntegerUtil.Big, 3, 0 );
+            fail();
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+
+        try
+        {
+            new BitLayout( IntegerUtil.Big, new long[]{ 0 }, new int[]{ 1, 2 } );
+            fail();
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+
+        var layout = new BitLayout( IntegerUtil.Big, 12, 12 );
+
+        try
+        {
+            layout.decode( new byte[ 3 ], 1 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+
+        try
+        {
+            layout.encode( new long[ 1 ], new byte[ 3 ], 0 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+    }
+}
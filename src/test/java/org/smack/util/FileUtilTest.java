@@ -6,10 +6,32 @@ package org.smack.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 
+import org.junit.Assume;
 import org.junit.Test;
 
 /**
@@ -126,4 +148,404 @@ public class FileUtilTest
                 list.size() );
         assertTrue( isClosed[0] );
     }
+
+    /**
+     * Create a tree of files in nested directories.
+     *
+     * @return The root of the tree.
+     */
+    private Path makeTree() throws Exception
+    {
+        var root = Files.createTempDirectory( getClass().getSimpleName() );
+
+        for ( int i = 0 ; i < 5 ; i++ )
+        {
+            var dir = Files.createDirectories(
+                    root.resolve( "d" + i ).resolve( "e" + i ) );
+            Files.write( dir.resolve( "small" + i ), new byte[ i ] );
+            Files.write( dir.getParent().resolve( "large" + i ), new byte[ 100 + i ] );
+        }
+
+        Files.createDirectories( root.resolve( "empty" ) );
+        Files.write( root.resolve( "top" ), new byte[ 1 ] );
+
+        return root;
+    }
+
+    private static Set<Path> toPaths( File[] files )
+    {
+        return Arrays.stream( files )
+                .map( File::toPath )
+                .collect( Collectors.toSet() );
+    }
+
+    @Test
+    public void testResolveDirectories() throws Exception
+    {
+        var root = makeTree();
+
+        try
+        {
+            var expected = toPaths(
+                    FileUtil.resolveDirectories( new File[] { root.toFile() } ) );
+            assertEquals( 11, expected.size() );
+
+            try ( var stream = FileUtil.resolveDirectories(
+                    List.of( root ), (p,a) -> true ) )
+            {
+                assertEquals(
+                        expected,
+                        stream.collect( Collectors.toSet() ) );
+            }
+
+            var parallel = FileUtil.resolveDirectories(
+                    ForkJoinPool.commonPool(),
+                    List.of( root ),
+                    (p,a) -> true );
+            assertEquals( expected.size(), parallel.size() );
+            assertEquals( expected, new HashSet<>( parallel ) );
+        }
+        finally
+        {
+            FileUtil.delete( root.toFile() );
+        }
+    }
+
+    @Test
+    public void testResolveDirectoriesFilter() throws Exception
+    {
+        var root = makeTree();
+
+        try
+        {
+            BiPredicate<Path, BasicFileAttributes> large =
+                    (p,a) -> a.size() >= 100;
+
+            var top = root.resolve( "top" );
+            var paths = List.of( root.resolve( "d1" ), root.resolve( "d2" ), top );
+
+            var expected = Set.of(
+                    root.resolve( "d1" ).resolve( "large1" ),
+                    root.resolve( "d2" ).resolve( "large2" ) );
+
+            try ( var stream = FileUtil.resolveDirectories( paths, large ) )
+            {
+                assertEquals( expected, stream.collect( Collectors.toSet() ) );
+            }
+
+            assertEquals(
+                    expected,
+                    new HashSet<>( FileUtil.resolveDirectories(
+                            ForkJoinPool.commonPool(), paths, large ) ) );
+
+            // Plain files are passed through the filter.
+            assertEquals(
+                    List.of( top ),
+                    FileUtil.resolveDirectories(
+                            ForkJoinPool.commonPool(),
+                            List.of( top ),
+                            (p,a) -> a.isRegularFile() ) );
+        }
+        finally
+        {
+            FileUtil.delete( root.toFile() );
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void testResolveDirectoriesMissing() throws Exception
+    {
+        var root = Files.createTempDirectory( getClass().getSimpleName() );
+        FileUtil.delete( root.toFile() );
+
+        FileUtil.resolveDirectories(
+                ForkJoinPool.commonPool(),
+                List.of( root ),
+                (p,a) -> true );
+    }
+
+    private Path write( String content, Charset cs ) throws Exception
+    {
+        var result = Files.createTempFile( getClass().getSimpleName(), null );
+        result.toFile().deleteOnExit();
+        Files.write( result, content.getBytes( cs ) );
+        return result;
+    }
+
+    private static List<String> reference( String content )
+    {
+        return new BufferedReader( new StringReader( content ) )
+                .lines()
+                .collect( Collectors.toList() );
+    }
+
+    @Test
+    public void testLinesFile() throws Exception
+    {
+        var contents = List.of(
+                "",
+                "a",
+                "a\n",
+                "\n\n",
+                "a\r\nb\rc\n\r\nd",
+                "Grüße\r\n€uro\n\u4e2d\u6587" );
+
+        for ( var cs : List.of(
+                StandardCharsets.UTF_8,
+                StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16 ) )
+        {
+            for ( var content : contents )
+            {
+                if ( ! cs.newEncoder().canEncode( content ) )
+                    continue;
+
+                var file = write( content, cs );
+
+                try ( var lines = FileUtil.lines( file, cs ) )
+                {
+                    assertEquals(
+                            cs + ": " + content,
+                            reference( content ),
+                            lines.collect( Collectors.toList() ) );
+                }
+
+                Files.delete( file );
+            }
+        }
+    }
+
+    @Test
+    public void testLinesParallel() throws Exception
+    {
+        var random = new Random( 313 );
+        var terminators = new String[] { "\n", "\r", "\r\n" };
+        var content = new StringBuilder();
+
+        while ( content.length() < 1_000_000 )
+        {
+            int length = random.nextInt( 200 );
+            for ( int i = 0 ; i < length ; i++ )
+                content.append( (char)('a' + random.nextInt( 26 )) );
+            if ( random.nextInt( 10 ) == 0 )
+                content.append( "äöü" );
+            content.append( terminators[ random.nextInt( terminators.length ) ] );
+        }
+
+        var file = write( content.toString(), StandardCharsets.UTF_8 );
+        var expected = reference( content.toString() );
+
+        try ( var lines = FileUtil.lines( file, StandardCharsets.UTF_8 ) )
+        {
+            assertEquals(
+                    expected,
+                    lines.parallel().collect( Collectors.toList() ) );
+        }
+
+        Files.delete( file );
+    }
+
+    @Test
+    public void testLinesWindows() throws Exception
+    {
+        var content = new StringBuilder();
+
+        // Lines of all lengths up to beyond the largest window, with all
+        // terminators, so terminators and multibyte characters hit every
+        // window boundary.
+        for ( int length = 0 ; length < 20 ; length++ )
+        {
+            for ( var terminator : List.of( "\n", "\r", "\r\n" ) )
+            {
+                for ( int i = 0 ; i < length ; i++ )
+                    content.append( i % 3 == 0 ? '\u00e4' : (char)('a' + i) );
+                content.append( terminator );
+            }
+        }
+        content.append( "last" );
+
+        var file = write( content.toString(), StandardCharsets.UTF_8 );
+        var expected = reference( content.toString() );
+
+        for ( int windowSize = 1 ; windowSize <= 16 ; windowSize++ )
+        {
+            try ( var lines = FileUtil.lines(
+                    file, StandardCharsets.UTF_8, windowSize ) )
+            {
+                assertEquals(
+                        "Window size " + windowSize,
+                        expected,
+                        lines.collect( Collectors.toList() ) );
+            }
+        }
+
+        Files.delete( file );
+    }
+
+    @Test
+    public void testLinesWindowsParallel() throws Exception
+    {
+        var random = new Random( 313 );
+        var content = new StringBuilder();
+
+        while ( content.length() < 300_000 )
+        {
+            int length = random.nextInt( 300 );
+            for ( int i = 0 ; i < length ; i++ )
+                content.append( (char)('a' + random.nextInt( 26 )) );
+            content.append( random.nextBoolean() ? "\r\n" : "\n" );
+        }
+
+        var file = write( content.toString(), StandardCharsets.UTF_8 );
+
+        try ( var lines = FileUtil.lines( file, StandardCharsets.UTF_8, 97 ) )
+        {
+            assertEquals(
+                    reference( content.toString() ),
+                    lines.parallel().collect( Collectors.toList() ) );
+        }
+
+        Files.delete( file );
+    }
+
+    @Test
+    public void testLinesMalformed() throws Exception
+    {
+        var file = Files.createTempFile( getClass().getSimpleName(), null );
+        file.toFile().deleteOnExit();
+        Files.write( file, new byte[] { 'a', '\n', 'b', (byte)0xff, '\n' } );
+
+        try ( var lines = FileUtil.lines( file, StandardCharsets.UTF_8 ) )
+        {
+            var iterator = lines.iterator();
+
+            assertEquals( "a", iterator.next() );
+
+            try
+            {
+                iterator.next();
+                assertTrue( false );
+            }
+            catch ( UncheckedIOException expected )
+            {
+                assertTrue(
+                        expected.getCause() instanceof MalformedInputException );
+            }
+        }
+
+        Files.delete( file );
+    }
+
+    @Test
+    public void testLinesReader() throws Exception
+    {
+        var sr = new StringReader( "1\n2\n3" );
+
+        try ( var lines = FileUtil.lines( sr ) )
+        {
+            assertEquals( "1", lines.findFirst().get() );
+        }
+
+        // Assert that the reader got closed.
+        try
+        {
+            sr.read();
+            assertTrue( false );
+        }
+        catch (Exception expected)
+        {
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception
+    {
+        var root = makeTree();
+
+        assertTrue( FileUtil.delete( root.toFile() ) );
+        assertFalse( Files.exists( root ) );
+
+        // Missing paths are fine.
+        assertTrue( FileUtil.delete( root.toFile() ) );
+        FileUtil.delete( ForkJoinPool.commonPool(), root );
+    }
+
+    @Test
+    public void testDeleteFailures() throws Exception
+    {
+        var root = makeTree();
+        var locked = root.resolve( "d1" ).resolve( "e1" );
+        var permissions = Files.getPosixFilePermissions( locked );
+
+        Files.setPosixFilePermissions(
+                locked,
+                PosixFilePermissions.fromString( "r-xr-xr-x" ) );
+
+        try
+        {
+            // Privileged users ignore the permissions.
+            Assume.assumeFalse( Files.isWritable( locked ) );
+
+            try
+            {
+                FileUtil.delete( ForkJoinPool.commonPool(), root );
+                fail();
+            }
+            catch ( IOException expected )
+            {
+                // Only the file in the locked directory is reported, not
+                // the directories holding it.
+                assertEquals( 1, expected.getSuppressed().length );
+                assertTrue(
+                        expected.getMessage(),
+                        expected.getMessage().startsWith( "Failed to delete 1 " ) );
+            }
+
+            assertTrue( Files.exists( locked.resolve( "small1" ) ) );
+            assertFalse( Files.exists( root.resolve( "d1" ).resolve( "large1" ) ) );
+            assertFalse( Files.exists( root.resolve( "d2" ) ) );
+        }
+        finally
+        {
+            Files.setPosixFilePermissions( locked, permissions );
+            FileUtil.delete( root.toFile() );
+        }
+    }
+
+    @Test
+    public void testDeleteFile() throws Exception
+    {
+        var file = write( "x", StandardCharsets.UTF_8 );
+
+        FileUtil.delete( ForkJoinPool.commonPool(), file );
+        assertFalse( Files.exists( file ) );
+    }
+
+    @Test
+    public void testDeleteLinks() throws Exception
+    {
+        var root = makeTree();
+        var outside = makeTree();
+
+        try
+        {
+            Files.createSymbolicLink( root.resolve( "link" ), outside );
+            Files.createSymbolicLink( root.resolve( "d0" ).resolve( "top" ), outside.resolve( "top" ) );
+
+            FileUtil.delete( ForkJoinPool.commonPool(), root );
+
+            assertFalse( Files.exists( root, LinkOption.NOFOLLOW_LINKS ) );
+            assertTrue( Files.exists( outside.resolve( "top" ) ) );
+            assertTrue( Files.exists( outside.resolve( "d0" ).resolve( "large0" ) ) );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // No symbolic links on this platform.
+        }
+        finally
+        {
+            FileUtil.delete( root.toFile() );
+            FileUtil.delete( outside.toFile() );
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package org.smack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class HexCodecTest
+{
+    private static byte[] allBytes()
+    {
+        var result = new byte[ 256 ];
+        for ( int i = 0 ; i < result.length ; i++ )
+            result[i] = (byte)i;
+        return result;
+    }
+
+    private static String reference( byte[] bytes )
+    {
+        var result = new StringBuilder();
+        for ( byte c : bytes )
+            result.append( String.format( "%02x", c ) );
+        return result.toString();
+    }
+
+    @Test
+    public void testEncode()
+    {
+        var bytes = allBytes();
+
+        assertEquals( reference( bytes ), HexCodec.encode( bytes ) );
+        assertEquals( "", HexCodec.encode( new byte[0] ) );
+        assertEquals( "0a0bff", HexCodec.encode( new byte[]{ 9, 10, 11, -1 }, 1, 3 ) );
+
+        var chars = new char[ 6 ];
+        assertEquals( 4, HexCodec.encode( new byte[]{ 1, -2 }, 0, 2, chars, 1 ) );
+        assertEquals( "\u000001fe\u0000", new String( chars ) );
+    }
+
+    @Test
+    public void testEncodeAppendable() throws Exception
+    {
+        // Larger than a chunk.
+        var bytes = new byte[ 5000 ];
+        for ( int i = 0 ; i < bytes.length ; i++ )
+            bytes[i] = (byte)(i * 31);
+
+        var expected = reference( bytes );
+
+        assertEquals(
+                expected,
+                HexCodec.encode( bytes, 0, bytes.length, new StringWriter() ).toString() );
+        assertEquals(
+                "x" + expected,
+                HexCodec.encode( bytes, 0, bytes.length, new StringBuilder( "x" ) ).toString() );
+        assertEquals(
+                expected.substring( 2, 10 ),
+                HexCodec.encode( bytes, 1, 4, new StringBuffer() ).toString() );
+    }
+
+    @Test
+    public void testEncodeByteBuffer()
+    {
+        var bytes = allBytes();
+        var source = ByteBuffer.wrap( bytes );
+        var target = ByteBuffer.allocate( 101 );
+        var result = new StringBuilder();
+
+        while ( source.hasRemaining() )
+        {
+            int count = HexCodec.encode( source, target );
+            assertTrue( count > 0 );
+            target.flip();
+            result.append( StandardCharsets.US_ASCII.decode( target ) );
+            target.clear();
+        }
+
+        assertEquals( reference( bytes ), result.toString() );
+    }
+
+    @Test
+    public void testDecode()
+    {
+        var bytes = allBytes();
+        var hex = reference( bytes );
+
+        assertArrayEquals( bytes, HexCodec.decode( hex ) );
+        assertArrayEquals( bytes, HexCodec.decode( hex.toUpperCase() ) );
+        assertArrayEquals(
+                new byte[]{ 0x0a, (byte)0xbc },
+                HexCodec.decode( "0x0aBc", 2, 6 ) );
+
+        var target = new byte[ 4 ];
+        assertEquals( 2, HexCodec.decode( "-12ab-", 1, 5, target, 1 ) );
+        assertArrayEquals( new byte[]{ 0, 0x12, (byte)0xab, 0 }, target );
+
+        var buffer = ByteBuffer.allocate( 3 );
+        assertEquals( 2, HexCodec.decode( "12ab", 0, 4, buffer ) );
+        assertEquals( 2, buffer.position() );
+    }
+
+    @Test
+    public void testDecodeErrors()
+    {
+        try
+        {
+            HexCodec.decode( "abc" );
+            fail();
+        }
+        catch ( NumberFormatException expected )
+        {
+            assertTrue( expected.getMessage().contains( "Odd" ) );
+        }
+
+        try
+        {
+            HexCodec.decode( "00112g" );
+            fail();
+        }
+        catch ( NumberFormatException expected )
+        {
+            assertTrue( expected.getMessage(), expected.getMessage().contains( "index 5" ) );
+        }
+
+        try
+        {
+            // Accepted by Short.parseShort.
+            HexCodec.decode( "-1" );
+            fail();
+        }
+        catch ( NumberFormatException expected )
+        {
+            assertTrue( expected.getMessage(), expected.getMessage().contains( "index 0" ) );
+        }
+
+        try
+        {
+            HexCodec.decode( "00ä0" );
+            fail();
+        }
+        catch ( NumberFormatException expected )
+        {
+            assertTrue( expected.getMessage(), expected.getMessage().contains( "index 2" ) );
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package org.smack.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class IntegerUtilTest
+{
+    private static final byte[] BYTES = {
+            0x01, 0x23, 0x45, 0x67, (byte)0x89, (byte)0xab, (byte)0xcd, (byte)0xef,
+            (byte)0xfe, (byte)0xdc, (byte)0xba, (byte)0x98, 0x76, 0x54, 0x32, 0x10 };
+
+    @Test
+    public void testToLong()
+    {
+        assertEquals(
+                0x0123456789abcdefL,
+                IntegerUtil.toLong( IntegerUtil.Big, BYTES ) );
+        assertEquals(
+                0xefcdab8967452301L,
+                IntegerUtil.toLong( IntegerUtil.Little, BYTES ) );
+        assertEquals(
+                0x89abcdef,
+                IntegerUtil.toInt( IntegerUtil.Big, BYTES, 4 ) );
+        assertEquals(
+                0xefcdab89,
+                IntegerUtil.toInt( IntegerUtil.Little, BYTES, 4 ) );
+        assertEquals(
+                (short)0xcdef,
+                IntegerUtil.toShort( IntegerUtil.Big, BYTES, 6 ) );
+        assertEquals(
+                (short)0xefcd,
+                IntegerUtil.toShort( IntegerUtil.Little, BYTES, 6 ) );
+    }
+
+    @Test
+    public void testToIntegerUnsigned()
+    {
+        assertEquals(
+                0xfedcL,
+                IntegerUtil.toInteger( IntegerUtil.Big, 16, BYTES, 8 ) );
+        assertEquals(
+                0xfedcba98L,
+                IntegerUtil.toInteger( IntegerUtil.Big, 32, BYTES, 8 ) );
+        assertEquals(
+                0x98badcfeL,
+                IntegerUtil.toInteger( IntegerUtil.Little, 32, BYTES, 8 ) );
+        assertEquals(
+                0xfedcbaL,
+                IntegerUtil.toInteger( IntegerUtil.Big, 24, BYTES, 8 ) );
+        assertEquals(
+                0xbadcfeL,
+                IntegerUtil.toInteger( IntegerUtil.Little, 24, BYTES, 8 ) );
+    }
+
+    @Test
+    public void testShortBuffer()
+    {
+        // Less bytes available than requested.
+        assertEquals(
+                0x3210L,
+                IntegerUtil.toLong( IntegerUtil.Big, BYTES, 14 ) );
+        assertEquals(
+                0x1032L,
+                IntegerUtil.toLong( IntegerUtil.Little, BYTES, 14 ) );
+    }
+
+    @Test
+    public void testFromLong()
+    {
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            for ( int bits = 8 ; bits <= Long.SIZE ; bits += 8 )
+            {
+                var target = new byte[ 10 ];
+                IntegerUtil.fromLong( endianness, 0x0123456789abcdefL, bits, target, 1 );
+
+                assertEquals(
+                        0x0123456789abcdefL & IntegerUtil.getMask( bits ),
+                        IntegerUtil.toInteger( endianness, bits, target, 1 ) );
+            }
+        }
+
+        assertArrayEquals(
+                new byte[]{ 0x01, 0x23, 0x45, 0x67 },
+                IntegerUtil.fromInt( IntegerUtil.Big, 0x01234567 ) );
+        assertArrayEquals(
+                new byte[]{ 0x67, 0x45, 0x23, 0x01 },
+                IntegerUtil.fromInt( IntegerUtil.Little, 0x01234567 ) );
+        assertArrayEquals(
+                new byte[]{ 0x01, 0x23 },
+                IntegerUtil.fromShort( IntegerUtil.Big, (short)0x0123 ) );
+    }
+
+    @Test
+    public void testBulkInts()
+    {
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            var ints = new int[ 5 ];
+            IntegerUtil.toInts( endianness, BYTES, 2, ints, 1, 3 );
+
+            for ( int i = 0 ; i < 3 ; i++ )
+                assertEquals(
+                        IntegerUtil.toInt( endianness, BYTES, 2 + i * 4 ),
+                        ints[1 + i] );
+
+            var buffered = new int[ 5 ];
+            IntegerUtil.toInts( endianness, ByteBuffer.wrap( BYTES ), 2, buffered, 1, 3 );
+            assertArrayEquals( ints, buffered );
+
+            var bytes = new byte[ BYTES.length ];
+            IntegerUtil.fromInts( endianness, ints, 1, 3, bytes, 2 );
+            assertArrayEquals(
+                    Arrays.copyOfRange( BYTES, 2, 14 ),
+                    Arrays.copyOfRange( bytes, 2, 14 ) );
+
+            var buffer = ByteBuffer.allocate( BYTES.length );
+            IntegerUtil.fromInts( endianness, ints, 1, 3, buffer, 2 );
+            assertEquals( 0, buffer.position() );
+            assertArrayEquals( bytes, buffer.array() );
+        }
+    }
+
+    @Test
+    public void testBulkLongs()
+    {
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            var longs = new long[ 2 ];
+            IntegerUtil.toLongs( endianness, BYTES, 0, longs, 0, 2 );
+
+            assertEquals( IntegerUtil.toLong( endianness, BYTES, 0 ), longs[0] );
+            assertEquals( IntegerUtil.toLong( endianness, BYTES, 8 ), longs[1] );
+
+            var buffered = new long[ 2 ];
+            IntegerUtil.toLongs( endianness, ByteBuffer.wrap( BYTES ), 0, buffered, 0, 2 );
+            assertArrayEquals( longs, buffered );
+
+            var bytes = new byte[ BYTES.length ];
+            IntegerUtil.fromLongs( endianness, longs, 0, 2, bytes, 0 );
+            assertArrayEquals( BYTES, bytes );
+
+            var buffer = ByteBuffer.allocateDirect( BYTES.length );
+            IntegerUtil.fromLongs( endianness, longs, 0, 2, buffer, 0 );
+            var direct = new byte[ BYTES.length ];
+            buffer.get( direct );
+            assertArrayEquals( BYTES, direct );
+        }
+    }
+
+    @Test
+    public void testBulkBounds()
+    {
+        try
+        {
+            IntegerUtil.toInts( IntegerUtil.Big, BYTES, 4, new int[4], 0, 4 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+
+        try
+        {
+            IntegerUtil.toLongs( IntegerUtil.Big, ByteBuffer.wrap( BYTES ), 1, new long[2], 0, 2 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+
+        try
+        {
+            IntegerUtil.fromLongs( IntegerUtil.Big, new long[2], 1, 2, new byte[16], 0 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+    }
+
+    /**
+     * Reads a single bit in the bit order of the passed endianness.
+     */
+    private static long bit( IntegerUtil.Endianness endianness, byte[] bytes, long offset )
+    {
+        int b = bytes[(int)(offset / 8)] & 0xff;
+        int shift = endianness == IntegerUtil.Big ?
+                7 - (int)(offset % 8) :
+                (int)(offset % 8);
+        return (b >>> shift) & 1;
+    }
+
+    private static long getBitsReference(
+            IntegerUtil.Endianness endianness, byte[] bytes, long offset, int count )
+    {
+        long result = 0;
+
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            if ( endianness == IntegerUtil.Big )
+                result = (result << 1) | bit( endianness, bytes, offset + i );
+            else
+                result |= bit( endianness, bytes, offset + i ) << i;
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A direct buffer holding the passed bytes.
+     */
+    private static ByteBuffer direct( byte[] bytes )
+    {
+        return ByteBuffer.allocateDirect( bytes.length )
+                .put( bytes )
+                .flip();
+    }
+
+    @Test
+    public void testGetBits()
+    {
+        var buffer = direct( BYTES );
+
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            for ( int count = 1 ; count <= Long.SIZE ; count++ )
+            {
+                for ( long offset = 0 ; offset + count <= BYTES.length * 8 ; offset++ )
+                {
+                    var message = endianness + " " + offset + " " + count;
+                    var expected = getBitsReference( endianness, BYTES, offset, count );
+
+                    assertEquals(
+                            message,
+                            expected,
+                            IntegerUtil.getBits( endianness, BYTES, offset, count ) );
+                    assertEquals(
+                            message,
+                            expected,
+                            IntegerUtil.getBits( endianness, buffer, offset, count ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetBitsBytewise()
+    {
+        // Byte aligned fields match the byte based conversion.
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            assertEquals(
+                    IntegerUtil.toInteger( endianness, 24, BYTES, 3 ),
+                    IntegerUtil.getBits( endianness, BYTES, 24, 24 ) );
+            assertEquals(
+                    IntegerUtil.toLong( endianness, BYTES, 8 ),
+                    IntegerUtil.getBits( endianness, ByteBuffer.wrap( BYTES ), 64, 64 ) );
+        }
+
+        assertEquals( 0b000, IntegerUtil.getBits( IntegerUtil.Big, BYTES, 0, 3 ) );
+        assertEquals( 0x012, IntegerUtil.getBits( IntegerUtil.Big, BYTES, 0, 12 ) );
+        assertEquals( 0x1, IntegerUtil.getBits( IntegerUtil.Little, BYTES, 0, 3 ) );
+        assertEquals( 0x301, IntegerUtil.getBits( IntegerUtil.Little, BYTES, 0, 12 ) );
+    }
+
+    @Test
+    public void testPutBits()
+    {
+        for ( var endianness : new IntegerUtil.Endianness[]{ IntegerUtil.Big, IntegerUtil.Little } )
+        {
+            for ( int count = 1 ; count <= Long.SIZE ; count++ )
+            {
+                for ( long offset = 0 ; offset + count <= BYTES.length * 8 ; offset += 7 )
+                {
+                    var target = BYTES.clone();
+                    long value = 0x5a5a5a5a5a5a5a5aL ^ offset;
+
+                    IntegerUtil.putBits( endianness, value, target, offset, count );
+
+                    // The buffer variant writes the same bytes.
+                    var buffer = direct( BYTES );
+                    IntegerUtil.putBits( endianness, value, buffer, offset, count );
+                    var written = new byte[ BYTES.length ];
+                    buffer.get( written );
+                    assertArrayEquals( target, written );
+
+                    assertEquals(
+                            value & IntegerUtil.getMask( count ),
+                            IntegerUtil.getBits( endianness, target, offset, count ) );
+
+                    // The other bits are unchanged.
+                    for ( long i = 0 ; i < BYTES.length * 8 ; i++ )
+                    {
+                        if ( i < offset || i >= offset + count )
+                            assertEquals(
+                                    bit( endianness, BYTES, i ),
+                                    bit( endianness, target, i ) );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBitsBounds()
+    {
+        try
+        {
+            IntegerUtil.getBits( IntegerUtil.Big, BYTES, 127, 2 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+
+        try
+        {
+            IntegerUtil.putBits( IntegerUtil.Little, 0, BYTES, -1, 2 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException expected )
+        {
+        }
+
+        try
+        {
+            IntegerUtil.getBits( IntegerUtil.Big, BYTES, 0, 65 );
+            fail();
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+    }
+
+    @Test
+    public void testHex() throws Exception
+    {
+        assertEquals(
+                "0x01 0x23 0x45 0x67 0x89 0xab 0xcd 0xef",
+                IntegerUtil.toHexString( Arrays.copyOf( BYTES, 8 ) ) );
+        assertEquals(
+                "0xfe",
+                IntegerUtil.toHexString( new byte[]{ (byte)0xfe } ) );
+        assertEquals(
+                "",
+                IntegerUtil.toHexString( new byte[0] ) );
+
+        assertArrayEquals(
+                Arrays.copyOf( BYTES, 8 ),
+                IntegerUtil.parse( "0x0123456789ABCDEF" ) );
+        assertArrayEquals(
+                new byte[]{ 0x1a, 0, 0 },
+                IntegerUtil.parse( 3, "1a" ) );
+
+        try
+        {
+            IntegerUtil.parse( "0x123" );
+            fail();
+        }
+        catch ( NumberFormatException expected )
+        {
+        }
+    }
+}
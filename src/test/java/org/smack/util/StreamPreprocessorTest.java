@@ -0,0 +1,398 @@
+/*
+ * Copyright © 2026 Michael Binz.
+ */
+package org.smack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test the stream preprocessor.
+ */
+public class StreamPreprocessorTest
+{
+    private static final String NL = System.lineSeparator();
+
+    /**
+     * Resolves names from a map.
+     */
+    private static class MapResolver implements StreamPreprocessor.Resolver
+    {
+        private final Map<String,String> _files;
+        private final Charset _cs;
+        private int _resolved;
+
+        MapResolver( Map<String,String> files, Charset cs )
+        {
+            _files = files;
+            _cs = cs;
+        }
+
+        @Override
+        public InputStream resolveName( String name ) throws IOException
+        {
+            _resolved++;
+            var content = _files.get( name );
+            if ( content == null )
+                throw new FileNotFoundException( name );
+            return new ByteArrayInputStream(
+                    content.getBytes( _cs ) );
+        }
+
+        @Override
+        public StreamPreprocessor.Resolver reposition( String name )
+        {
+            return this;
+        }
+    }
+
+    /**
+     * Resolves names relative to a directory.  Provides canonical names
+     * only if requested.
+     */
+    private static class DirectoryResolver implements StreamPreprocessor.Resolver
+    {
+        private final Map<String,String> _files;
+        private final String _directory;
+        private final boolean _canonical;
+
+        /**
+         * The number of resolved names, shared by repositioned instances.
+         */
+        private final int[] _resolved;
+
+        DirectoryResolver( Map<String,String> files, String directory )
+        {
+            this( files, directory, false, new int[1] );
+        }
+
+        DirectoryResolver(
+                Map<String,String> files,
+                String directory,
+                boolean canonical,
+                int[] resolved )
+        {
+            _files = files;
+            _directory = directory;
+            _canonical = canonical;
+            _resolved = resolved;
+        }
+
+        @Override
+        public InputStream resolveName( String name ) throws IOException
+        {
+            _resolved[0]++;
+            var content = _files.get( canonical( name ) );
+            if ( content == null )
+                throw new FileNotFoundException( _directory + name );
+            return new ByteArrayInputStream(
+                    content.getBytes( StandardCharsets.UTF_8 ) );
+        }
+
+        @Override
+        public StreamPreprocessor.Resolver reposition( String name )
+        {
+            var path = canonical( name );
+
+            return new DirectoryResolver(
+                    _files,
+                    path.substring( 0, path.lastIndexOf( '/' ) + 1 ),
+                    _canonical,
+                    _resolved );
+        }
+
+        @Override
+        public String canonicalName( String name )
+        {
+            return _canonical ?
+                    canonical( name ) :
+                    null;
+        }
+
+        /**
+         * @return The passed name relative to the root, with '..' resolved.
+         */
+        private String canonical( String name )
+        {
+            var result = _directory;
+
+            while ( name.startsWith( "../" ) )
+            {
+                result = result.substring(
+                        0,
+                        result.lastIndexOf( '/', result.length() - 2 ) + 1 );
+                name = name.substring( 3 );
+            }
+
+            return result + name;
+        }
+    }
+
+    private static String bulk( String in, Charset cs, Map<String,String> files )
+        throws IOException
+    {
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream( in.getBytes( cs ) ),
+                new MapResolver( files, cs ),
+                cs ) )
+        {
+            return new String( pp.readAllBytes(), cs );
+        }
+    }
+
+    private static String single( String in, Charset cs, Map<String,String> files )
+        throws IOException
+    {
+        var result = new ByteArrayOutputStream();
+
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream( in.getBytes( cs ) ),
+                new MapResolver( files, cs ),
+                cs ) )
+        {
+            for ( int c = pp.read() ; c != -1 ; c = pp.read() )
+                result.write( c );
+        }
+
+        return new String( result.toByteArray(), cs );
+    }
+
+    private static void check( String expected, String in, Map<String,String> files )
+        throws IOException
+    {
+        for ( var cs : new Charset[] {
+                StandardCharsets.UTF_8,
+                StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_16BE } )
+        {
+            assertEquals( cs.name(), expected, bulk( in, cs, files ) );
+            assertEquals( cs.name(), expected, single( in, cs, files ) );
+        }
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException
+    {
+        check(
+                "a" + NL + "b" + NL + "" + NL + "c" + NL + "  " + NL + "d" + NL,
+                "a\nb\r\n\rc\r  \nd",
+                Map.of() );
+        check( "", "", Map.of() );
+        check( NL + NL, "\r\n\n", Map.of() );
+    }
+
+    @Test
+    public void testInclude() throws IOException
+    {
+        var files = Map.of(
+                "one", "1\n#include \"two\"\n1",
+                "two", "2" );
+
+        check(
+                "a" + NL + "1" + NL + "2" + NL + "1" + NL + "b" + NL,
+                "a\n  #include one\r\nb\n",
+                files );
+        check(
+                "1" + NL + "2" + NL + "1" + NL,
+                "#include one",
+                files );
+    }
+
+    @Test
+    public void testPassThrough() throws IOException
+    {
+        check(
+                "äöü # x" + NL + "ß" + NL,
+                "äöü # x\nß",
+                Map.of() );
+    }
+
+    @Test
+    public void testLongLines() throws IOException
+    {
+        var line = "x".repeat( 20_000 );
+        var blank = " ".repeat( 20_000 );
+
+        check(
+                line + NL + blank + NL + blank + "y" + NL,
+                line + "\r\n" + blank + "\n" + blank + "y",
+                Map.of() );
+    }
+
+    @Test
+    public void testIncludeCache() throws IOException
+    {
+        var resolver = new MapResolver(
+                Map.of(
+                        "one", "1\n#include two\n",
+                        "two", "2" ),
+                StandardCharsets.UTF_8 );
+
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream(
+                        "#include one\n#include two\n#include one".getBytes() ),
+                resolver,
+                StandardCharsets.UTF_8 ) )
+        {
+            assertEquals(
+                    "1" + NL + "2" + NL + "2" + NL + "1" + NL + "2" + NL,
+                    new String( pp.readAllBytes(), StandardCharsets.UTF_8 ) );
+        }
+
+        assertEquals( 2, resolver._resolved );
+    }
+
+    @Test
+    public void testIncludeOnce() throws IOException
+    {
+        var resolver = new MapResolver(
+                Map.of(
+                        "one", "1\n#include two\n#include one",
+                        "two", "2" ),
+                StandardCharsets.UTF_8 );
+
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream(
+                        "#include one\n#include two\n#include one".getBytes() ),
+                resolver,
+                StandardCharsets.UTF_8,
+                true ) )
+        {
+            assertEquals(
+                    "1" + NL + "2" + NL,
+                    new String( pp.readAllBytes(), StandardCharsets.UTF_8 ) );
+        }
+    }
+
+    @Test
+    public void testIncludeCycle() throws IOException
+    {
+        var files = Map.of(
+                "one", "#include two",
+                "two", "#include three",
+                "three", "#include one" );
+
+        try
+        {
+            bulk( "a\n#include one", StandardCharsets.UTF_8, files );
+            fail();
+        }
+        catch ( IOException e )
+        {
+            assertEquals(
+                    "Include cycle: one -> two -> three -> one",
+                    e.getMessage() );
+        }
+    }
+
+    /**
+     * Equal names resolved in different directories are different
+     * resources.
+     */
+    @Test
+    public void testIncludeRelative() throws IOException
+    {
+        var resolver = new DirectoryResolver(
+                Map.of(
+                        "a/main", "#include common",
+                        "a/common", "A\n#include sub/nested",
+                        "a/sub/nested", "#include common",
+                        "a/sub/common", "S",
+                        "b/main", "#include common",
+                        "b/common", "B" ),
+                "" );
+
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream(
+                        "#include a/main\n#include b/main".getBytes() ),
+                resolver,
+                StandardCharsets.UTF_8 ) )
+        {
+            assertEquals(
+                    "A" + NL + "S" + NL + "B" + NL,
+                    new String( pp.readAllBytes(), StandardCharsets.UTF_8 ) );
+        }
+    }
+
+    /**
+     * A resource included through different resolver instances is read
+     * once if the resolver provides canonical names.
+     */
+    @Test
+    public void testIncludeCanonical() throws IOException
+    {
+        var files = Map.of(
+                "a/main", "#include ../common",
+                "b/main", "#include ../common",
+                "c/sub/main", "#include ../../common",
+                "common", "C" );
+        var resolved = new int[1];
+        var resolver = new DirectoryResolver( files, "", true, resolved );
+
+        try ( var pp = new StreamPreprocessor(
+                new ByteArrayInputStream(
+                        "#include a/main\n#include b/main\n#include c/sub/main".getBytes() ),
+                resolver,
+                StandardCharsets.UTF_8 ) )
+        {
+            assertEquals(
+                    "C" + NL + "C" + NL + "C" + NL,
+                    new String( pp.readAllBytes(), StandardCharsets.UTF_8 ) );
+        }
+
+        // The three mains and the common resource.
+        assertEquals( 4, resolved[0] );
+    }
+
+    @Test
+    public void testFileResolver() throws IOException
+    {
+        var root = Files.createTempDirectory( getClass().getSimpleName() );
+
+        try
+        {
+            Files.createDirectories( root.resolve( "a" ) );
+            Files.createDirectories( root.resolve( "b" ) );
+            Files.writeString( root.resolve( "a/main" ), "#include ../common" );
+            Files.writeString( root.resolve( "b/main" ), "#include \"../common\"" );
+            Files.writeString( root.resolve( "common" ), "C" );
+
+            var resolver = new StreamPreprocessor.FileResolver( root );
+
+            try ( var pp = new StreamPreprocessor(
+                    new ByteArrayInputStream(
+                            "#include a/main\n#include b/main".getBytes() ),
+                    resolver,
+                    StandardCharsets.UTF_8 ) )
+            {
+                assertEquals(
+                        "C" + NL + "C" + NL,
+                        new String( pp.readAllBytes(), StandardCharsets.UTF_8 ) );
+            }
+
+            // Repositioned instances agree on the canonical name.
+            assertEquals(
+                    resolver.canonicalName( "common" ),
+                    resolver.reposition( "a/main" ).canonicalName( "../common" ) );
+            assertEquals(
+                    resolver.canonicalName( "common" ),
+                    resolver.reposition( "b/main" ).canonicalName( "../common" ) );
+        }
+        finally
+        {
+            FileUtil.delete( root.toFile() );
+        }
+    }
+}
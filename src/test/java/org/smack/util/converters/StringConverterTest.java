@@ -2,13 +2,19 @@ package org.smack.util.converters;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.awt.Color;
 import java.net.URL;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.smack.util.ServiceManager;
@@ -65,6 +71,104 @@ public class StringConverterTest
                 _cvt.convert( int[].class, "-1 0 1" ) );
     }
 
+    @Test
+    public void testPrimitiveInt() throws Exception
+    {
+        assertEquals(
+                -313,
+                _cvt.convertInt( "-313" ) );
+        assertEquals(
+                0xf,
+                _cvt.getIntConverter().convert( "#f" ) );
+        assertEquals(
+                8,
+                _cvt.convertInt( "010" ) );
+        assertEquals(
+                Integer.MIN_VALUE,
+                _cvt.convertInt( "-0x80000000" ) );
+        try
+        {
+            _cvt.convertInt( "0x80000000" );
+            fail();
+        }
+        catch ( NumberFormatException e )
+        {
+        }
+        try
+        {
+            _cvt.convertInt( "0x-1" );
+            fail();
+        }
+        catch ( NumberFormatException e )
+        {
+        }
+    }
+
+    @Test
+    public void testPrimitiveLong() throws Exception
+    {
+        assertEquals(
+                Long.MIN_VALUE,
+                _cvt.convertLong( Long.toString( Long.MIN_VALUE ) ) );
+        assertEquals(
+                Long.MAX_VALUE,
+                _cvt.convertLong( "0x7fffffffffffffff" ) );
+        assertArrayEquals(
+                new long[] { -1, 0, 0x100000000L },
+                _cvt.convert( long[].class, "-1 0 0x100000000" ) );
+    }
+
+    @Test
+    public void testPrimitiveDouble() throws Exception
+    {
+        assertEquals(
+                3.13,
+                _cvt.convertDouble( "3.13" ),
+                0.0 );
+        assertArrayEquals(
+                new double[] { -1.5, 0, 2e3 },
+                _cvt.convert( double[].class, "-1.5 0 2e3" ),
+                0.0 );
+    }
+
+    @Test
+    public void testPrimitiveArrayRanges() throws Exception
+    {
+        var doubles = new String[] {
+                "0", "-0.0", "1.", ".5", "3.14159", "-2.5e-3", "1E22", "1e-22",
+                "123456789012345", "0.1234567890123456789", "1e300", "NaN",
+                "-Infinity", "0x1p3", "7d" };
+
+        var expected = new double[ doubles.length ];
+        for ( int i = 0 ; i < doubles.length ; i++ )
+            expected[i] = Double.parseDouble( doubles[i] );
+
+        assertArrayEquals(
+                expected,
+                _cvt.convert( double[].class, String.join( " ", doubles ) ),
+                0.0 );
+
+        // Quoted and mixed tokens.
+        assertArrayEquals(
+                new int[] { 1, 0x20, -3 },
+                _cvt.convert( int[].class, "\"1\" 0x\"20\" -3" ) );
+        assertArrayEquals(
+                new long[] { 1, 0x20, -3 },
+                _cvt.convert( long[].class, " \"1\"  0x\"20\"  -3 " ) );
+    }
+
+    @Test
+    public void testPrimitiveReplaced() throws Exception
+    {
+        var cvt = new StringConverter();
+
+        cvt.put( int.class, s -> 313 );
+
+        assertEquals(
+                313,
+                cvt.convertInt( "1" ) );
+    }
+
     @Test
     public void testColor() throws Exception
     {
@@ -155,4 +259,96 @@ public class StringConverterTest
                 new URL( urlTxt ),
                 _cvt.convert( URL.class, urlTxt ) );
     }
+
+    private static class Unknown
+    {
+        private final int _value;
+
+        Unknown( int value )
+        {
+            _value = value;
+        }
+    }
+
+    @Test
+    public void testUnknownType() throws Exception
+    {
+        var cvt = new StringConverter();
+
+        assertFalse( cvt.containsKey( Unknown.class ) );
+        assertFalse( cvt.containsKey( Unknown[].class ) );
+        // Negative result is stable.
+        assertFalse( cvt.containsKey( Unknown.class ) );
+        assertNull( cvt.getConverter( Unknown[].class ) );
+
+        cvt.put( Unknown.class, s -> new Unknown( Integer.parseInt( s ) ) );
+
+        assertTrue( cvt.containsKey( Unknown.class ) );
+        assertEquals(
+                313,
+                cvt.convert( Unknown.class, "313" )._value );
+        // Now the array can be synthesized.
+        assertEquals(
+                3,
+                cvt.convert( Unknown[].class, "1 2 3" ).length );
+    }
+
+    /**
+     * A lookup running concurrently with a put must not hide the new
+     * converter.
+     */
+    @Test
+    public void testConcurrentPut() throws Exception
+    {
+        var executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            for ( int i = 0 ; i < 500 ; i++ )
+            {
+                var cvt = new StringConverter();
+                var start = new CountDownLatch( 1 );
+
+                var lookup = executor.submit( () -> {
+                    start.await();
+                    return cvt.getConverter( Unknown[].class );
+                } );
+
+                start.countDown();
+                cvt.put( Unknown.class, s -> new Unknown( Integer.parseInt( s ) ) );
+                lookup.get();
+
+                assertTrue( cvt.containsKey( Unknown[].class ) );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentSynthesis() throws Exception
+    {
+        var cvt = new StringConverter();
+        var executor = Executors.newFixedThreadPool( 8 );
+
+        try
+        {
+            var tasks = new ArrayList<Callable<Month[]>>();
+            for ( int i = 0 ; i < 64 ; i++ )
+                tasks.add( () -> cvt.convert( Month[].class, "MAY APRIL" ) );
+
+            for ( var c : executor.invokeAll( tasks ) )
+            {
+                assertArrayEquals(
+                        new Month[] { Month.MAY, Month.APRIL },
+                        c.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
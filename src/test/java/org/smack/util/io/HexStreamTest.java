@@ -0,0 +1,138 @@
+package org.smack.util.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.smack.util.StringUtil;
+
+public class HexStreamTest
+{
+    @Test
+    public void testPlain() throws Exception
+    {
+        var data = new byte[ 10_000 ];
+        new Random( 313 ).nextBytes( data );
+
+        var bos = new ByteArrayOutputStream();
+
+        try ( var hex = new HexOutputStream( bos ) )
+        {
+            hex.write( data[0] );
+            hex.write( data, 1, 4999 );
+            hex.write( data, 5000, 5000 );
+        }
+
+        assertEquals(
+                StringUtil.toHex( data ),
+                bos.toString( StandardCharsets.US_ASCII ) );
+
+        try ( var hex = new HexInputStream(
+                new ByteArrayInputStream( bos.toByteArray() ) ) )
+        {
+            assertArrayEquals( data, hex.readAllBytes() );
+        }
+    }
+
+    @Test
+    public void testDump() throws Exception
+    {
+        var bos = new ByteArrayOutputStream();
+
+        try ( var hex = new HexOutputStream( bos, HexOutputStream.Format.DUMP ) )
+        {
+            hex.write( "0123456789abcdefHello World\n".getBytes( StandardCharsets.US_ASCII ) );
+        }
+
+        assertEquals(
+                "00000000  30 31 32 33 34 35 36 37  38 39 61 62 63 64 65 66  |0123456789abcdef|\n" +
+                "00000010  48 65 6c 6c 6f 20 57 6f  72 6c 64 0a              |Hello World.|\n",
+                bos.toString( StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void testDecode() throws Exception
+    {
+        var input = "01 23\n45AB\r\n cdEF  ";
+
+        try ( var hex = new HexInputStream(
+                new ByteArrayInputStream( input.getBytes( StandardCharsets.US_ASCII ) ) ) )
+        {
+            assertEquals( 0x01, hex.read() );
+            assertEquals( 1, hex.skip( 1 ) );
+
+            var b = new byte[ 10 ];
+            assertEquals( 4, hex.read( b, 0, b.length ) );
+            assertArrayEquals(
+                    new byte[]{ 0x45, (byte)0xab, (byte)0xcd, (byte)0xef },
+                    Arrays.copyOf( b, 4 ) );
+            assertEquals( -1, hex.read() );
+            assertEquals( -1, hex.read( b, 0, b.length ) );
+        }
+    }
+
+    private static void assertDecodeError( String input, String expected )
+    {
+        try ( var hex = new HexInputStream(
+                new ByteArrayInputStream( input.getBytes( StandardCharsets.US_ASCII ) ) ) )
+        {
+            hex.readAllBytes();
+            fail();
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( expected ) );
+        }
+    }
+
+    @Test
+    public void testDecodeErrors() throws Exception
+    {
+        assertDecodeError( "0011x2", "offset 4" );
+        assertDecodeError( "001", "Odd" );
+        assertDecodeError( "00 1 2 -", "offset 7" );
+    }
+
+    @Test
+    public void testPipe() throws Exception
+    {
+        var data = new byte[ 100_000 ];
+        new Random( 313 ).nextBytes( data );
+
+        var executor = Executors.newSingleThreadExecutor();
+
+        try ( var pipe = new SimplePipe() )
+        {
+            var writer = executor.submit( () ->
+            {
+                try ( var hex = new HexOutputStream( pipe.getWriteEnd() ) )
+                {
+                    for ( int i = 0 ; i < data.length ; i += 777 )
+                        hex.write( data, i, Math.min( 777, data.length - i ) );
+                }
+                return null;
+            } );
+
+            try ( var hex = new HexInputStream( pipe.getReadEnd() ) )
+            {
+                assertArrayEquals( data, hex.readAllBytes() );
+            }
+
+            writer.get();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package org.smack.util.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.smack.util.io.OutputStreamForwarder.Overflow;
+
+public class OutputStreamForwarderTest
+{
+    /**
+     * Write single bytes and arrays of varying size and offset, including
+     * writes larger than a chunk, and compare the forwarded data.
+     */
+    @Test
+    public void forward() throws IOException
+    {
+        var random = new Random( 313 );
+        var expected = new ByteArrayOutputStream();
+        var target = new ByteArrayOutputStream();
+
+        try ( var forwarder = new OutputStreamForwarder( target, 10_000, 100 ) )
+        {
+            for ( int i = 0 ; i < 1000 ; i++ )
+            {
+                var data = new byte[ random.nextInt( 300 ) + 1 ];
+                random.nextBytes( data );
+                int off = random.nextInt( data.length );
+                int len = random.nextInt( data.length - off + 1 );
+
+                forwarder.write( data, off, len );
+                expected.write( data, off, len );
+
+                forwarder.write( data[0] );
+                expected.write( data[0] );
+
+                if ( i % 100 == 0 )
+                    forwarder.flush();
+            }
+        }
+
+        assertArrayEquals( expected.toByteArray(), target.toByteArray() );
+    }
+
+    /**
+     * Small writes are collected into fewer target writes.
+     */
+    @Test
+    public void coalesce() throws IOException
+    {
+        var writes = new AtomicInteger();
+        var target = new ByteArrayOutputStream()
+        {
+            @Override
+            public synchronized void write( byte[] b, int off, int len )
+            {
+                writes.incrementAndGet();
+                super.write( b, off, len );
+            }
+        };
+
+        try ( var forwarder = new OutputStreamForwarder( target, 16 ) )
+        {
+            for ( int i = 0 ; i < 100_000 ; i++ )
+                forwarder.write( i );
+        }
+
+        assertEquals( 100_000, target.size() );
+        assertTrue( writes.get() < 100_000 );
+    }
+
+    @Test
+    public void closeForwardsPending() throws IOException
+    {
+        var target = new ByteArrayOutputStream();
+
+        var forwarder = new OutputStreamForwarder( target, 4 );
+        forwarder.write( new byte[] { 1, 2, 3 } );
+        forwarder.close();
+
+        assertArrayEquals( new byte[] { 1, 2, 3 }, target.toByteArray() );
+
+        try
+        {
+            forwarder.write( 4 );
+            fail();
+        }
+        catch ( IOException expected )
+        {
+        }
+    }
+
+    @Test
+    public void targetFailure() throws Exception
+    {
+        var forwarder = new OutputStreamForwarder( new OutputStream()
+        {
+            @Override
+            public void write( int b ) throws IOException
+            {
+                throw new IOException( "313" );
+            }
+        }, 4 );
+
+        try
+        {
+            for ( int i = 0 ; i < 1000 ; i++ )
+            {
+                forwarder.write( i );
+                Thread.sleep( 1 );
+            }
+            fail();
+        }
+        catch ( IOException expected )
+        {
+            assertEquals( "313", expected.getMessage() );
+        }
+    }
+
+    /**
+     * A target blocking on its first write until released.
+     */
+    private static class GatedStream extends ByteArrayOutputStream
+    {
+        final CountDownLatch _gate = new CountDownLatch( 1 );
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            try
+            {
+                _gate.await();
+            }
+            catch ( InterruptedException e )
+            {
+                throw new AssertionError( e );
+            }
+            super.write( b, off, len );
+        }
+    }
+
+    @Test
+    public void overflowBlock() throws Exception
+    {
+        var target = new ByteArrayOutputStream()
+        {
+            @Override
+            public synchronized void write( byte[] b, int off, int len )
+            {
+                try
+                {
+                    Thread.sleep( 1 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new AssertionError( e );
+                }
+                super.write( b, off, len );
+            }
+        };
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, Overflow.BLOCK, 10, TimeUnit.SECONDS );
+
+        var data = new byte[ 25 ];
+        for ( int i = 0 ; i < 100 ; i++ )
+            forwarder.write( data );
+        forwarder.close();
+
+        assertEquals( 2500, target.size() );
+        assertEquals( 0, forwarder.getDroppedBytes() );
+        assertEquals( 0, forwarder.getQueuedBytes() );
+        assertTrue( forwarder.getForwardedChunks() > 0 );
+        assertTrue( forwarder.getTargetWriteTime() > 0 );
+        assertTrue( forwarder.getPumpLatency() > 0 );
+    }
+
+    @Test
+    public void overflowBlockTimeout() throws Exception
+    {
+        var target = new GatedStream();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 1, 10, Overflow.BLOCK, 10, TimeUnit.MILLISECONDS );
+
+        try
+        {
+            for ( int i = 0 ; i < 100 ; i++ )
+                forwarder.write( new byte[ 20 ] );
+            fail();
+        }
+        catch ( IOException expected )
+        {
+        }
+        finally
+        {
+            target._gate.countDown();
+            forwarder.close();
+        }
+    }
+
+    private void overflowDrop( Overflow overflow ) throws Exception
+    {
+        var target = new GatedStream();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, overflow, 0, TimeUnit.SECONDS );
+
+        for ( int i = 0 ; i < 100 ; i++ )
+            forwarder.write( new byte[ 20 ] );
+
+        assertTrue( forwarder.getDroppedBytes() > 0 );
+        assertEquals(
+                2000 - forwarder.getDroppedBytes(),
+                forwarder.getQueuedBytes() );
+
+        target._gate.countDown();
+        forwarder.close();
+
+        assertEquals( 2000, target.size() + forwarder.getDroppedBytes() );
+        assertEquals( 0, forwarder.getQueuedBytes() );
+    }
+
+    @Test
+    public void overflowDropNewest() throws Exception
+    {
+        overflowDrop( Overflow.DROP_NEWEST );
+    }
+
+    @Test
+    public void overflowDropOldest() throws Exception
+    {
+        overflowDrop( Overflow.DROP_OLDEST );
+    }
+
+    @Test
+    public void overflowFail() throws Exception
+    {
+        var target = new GatedStream();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, Overflow.FAIL, 0, TimeUnit.SECONDS );
+
+        try
+        {
+            for ( int i = 0 ; i < 100 ; i++ )
+                forwarder.write( new byte[ 20 ] );
+            fail();
+        }
+        catch ( IOException expected )
+        {
+            assertEquals( "Pipe broken -- no consumer.", expected.getMessage() );
+        }
+        finally
+        {
+            target._gate.countDown();
+            forwarder.close();
+        }
+    }
+
+    /**
+     * Fill the queue until writes fail and check that exactly the data of
+     * the successful writes is forwarded.
+     */
+    private void overflowAccepted( Overflow overflow, long timeout ) throws Exception
+    {
+        var random = new Random( 313 );
+        var target = new GatedStream();
+        var accepted = new ByteArrayOutputStream();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, overflow, timeout, TimeUnit.MILLISECONDS );
+
+        int failures = 0;
+
+        for ( int i = 0 ; i < 100 ; i++ )
+        {
+            var data = new byte[ random.nextInt( 8 ) + 1 ];
+            random.nextBytes( data );
+
+            try
+            {
+                if ( data.length == 1 )
+                    forwarder.write( data[0] );
+                else
+                    forwarder.write( data );
+                accepted.write( data );
+            }
+            catch ( IOException expected )
+            {
+                failures++;
+            }
+        }
+
+        assertTrue( failures > 0 );
+        assertEquals( accepted.size(), forwarder.getQueuedBytes() );
+
+        target._gate.countDown();
+        forwarder.close();
+
+        assertArrayEquals( accepted.toByteArray(), target.toByteArray() );
+        assertEquals( 0, forwarder.getDroppedBytes() );
+        assertEquals( 0, forwarder.getQueuedBytes() );
+    }
+
+    @Test
+    public void overflowFailAccepted() throws Exception
+    {
+        overflowAccepted( Overflow.FAIL, 0 );
+    }
+
+    @Test
+    public void overflowBlockAccepted() throws Exception
+    {
+        overflowAccepted( Overflow.BLOCK, 1 );
+    }
+
+    /**
+     * Failed writes larger than a chunk are not counted as queued.
+     */
+    @Test
+    public void overflowFailMetrics() throws Exception
+    {
+        var target = new GatedStream();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 1, 10, Overflow.FAIL, 0, TimeUnit.SECONDS );
+
+        long accepted = 0;
+
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            try
+            {
+                forwarder.write( new byte[ 20 ] );
+                accepted += 20;
+            }
+            catch ( IOException expected )
+            {
+            }
+        }
+
+        assertTrue( accepted < 200 );
+        assertEquals( accepted, forwarder.getQueuedBytes() );
+
+        target._gate.countDown();
+        forwarder.close();
+
+        try
+        {
+            forwarder.write( new byte[ 20 ] );
+            fail();
+        }
+        catch ( IOException expected )
+        {
+        }
+
+        assertEquals( accepted, target.size() );
+        assertEquals( 0, forwarder.getQueuedBytes() );
+        assertEquals( 0, forwarder.getDroppedBytes() );
+    }
+
+    /**
+     * A gated target recording its size on flush.
+     */
+    private static class FlushRecorder extends GatedStream
+    {
+        final CountDownLatch _entered = new CountDownLatch( 1 );
+        volatile int _flushed = -1;
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            _entered.countDown();
+            super.write( b, off, len );
+        }
+
+        @Override
+        public void flush()
+        {
+            _flushed = size();
+        }
+    }
+
+    /**
+     * The drop policies never drop flush requests.
+     */
+    private void overflowDropFlush( Overflow overflow ) throws Exception
+    {
+        var target = new FlushRecorder();
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, overflow, 0, TimeUnit.SECONDS );
+
+        // Wait until the forwarding thread blocks in the target.
+        forwarder.write( new byte[ 20 ] );
+        target._entered.await();
+
+        for ( int i = 1 ; i < 20 ; i++ )
+        {
+            forwarder.flush();
+            forwarder.write( new byte[ 20 ] );
+        }
+        forwarder.flush();
+
+        assertTrue( forwarder.getDroppedBytes() > 0 );
+
+        target._gate.countDown();
+
+        while ( forwarder.getQueuedBytes() > 0 || target._flushed != target.size() )
+            Thread.sleep( 1 );
+
+        assertEquals( 400, target.size() + forwarder.getDroppedBytes() );
+
+        forwarder.close();
+    }
+
+    @Test( timeout = 10_000 )
+    public void overflowDropNewestFlush() throws Exception
+    {
+        overflowDropFlush( Overflow.DROP_NEWEST );
+    }
+
+    @Test( timeout = 10_000 )
+    public void overflowDropOldestFlush() throws Exception
+    {
+        overflowDropFlush( Overflow.DROP_OLDEST );
+    }
+
+    /**
+     * Close does not block if the forwarding thread terminated on a
+     * runtime exception while the queue is full.
+     */
+    @Test( timeout = 10_000 )
+    public void closeAfterRuntimeFailure() throws Exception
+    {
+        var target = new GatedStream()
+        {
+            @Override
+            public void write( byte[] b, int off, int len )
+            {
+                try
+                {
+                    _gate.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new AssertionError( e );
+                }
+                throw new IllegalStateException( "313" );
+            }
+        };
+
+        var forwarder = new OutputStreamForwarder(
+                target, 2, 10, Overflow.FAIL, 0, TimeUnit.SECONDS );
+
+        long accepted = 0;
+
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            try
+            {
+                forwarder.write( new byte[ 5 ] );
+                accepted += 5;
+            }
+            catch ( IOException expected )
+            {
+            }
+        }
+
+        target._gate.countDown();
+
+        // Writes fail on the full queue until the failure of the
+        // forwarding thread is reported.
+        IOException failure = null;
+
+        while ( failure == null || failure.getCause() == null )
+        {
+            try
+            {
+                forwarder.write( 0 );
+                accepted++;
+            }
+            catch ( IOException e )
+            {
+                failure = e;
+            }
+            Thread.sleep( 1 );
+        }
+
+        assertEquals( "313", failure.getCause().getMessage() );
+
+        forwarder.close();
+
+        assertEquals( 0, target.size() );
+        assertEquals( accepted, forwarder.getQueuedBytes() );
+        assertEquals( 0, forwarder.getDroppedBytes() );
+    }
+}
@@ -1,8 +1,18 @@
 package org.smack.util.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
@@ -19,6 +29,112 @@ public class PipeTest
         }
     }
 
+    /**
+     * Write random data in chunks of varying size from a separate
+     * thread and compare the data received.
+     */
+    private void bulk( Pipe p ) throws Exception
+    {
+        var data = new byte[ 100_000 ];
+        new Random( 313 ).nextBytes( data );
+
+        var executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            Future<?> writer = executor.submit( () -> {
+                var random = new Random( 1 );
+                var w = p.getWriteEnd();
+                int position = 0;
+                while ( position < data.length )
+                {
+                    int count = Math.min(
+                            data.length - position,
+                            random.nextInt( 3000 ) );
+                    if ( count == 1 )
+                        w.write( data[position] );
+                    else
+                        w.write( data, position, count );
+                    position += count;
+                }
+                w.flush();
+                return null;
+            } );
+
+            var received = new ByteArrayOutputStream();
+            var buffer = new byte[ 1777 ];
+            var r = p.getReadEnd();
+            while ( received.size() < data.length )
+            {
+                int count = r.read( buffer );
+                received.write( buffer, 0, count );
+            }
+
+            writer.get();
+
+            assertArrayEquals( data, received.toByteArray() );
+        }
+        finally
+        {
+            executor.shutdown();
+            p.close();
+        }
+    }
+
+    /**
+     * Transfer random data through the channel ends using direct buffers.
+     */
+    private void bulkChannel( Pipe p ) throws Exception
+    {
+        var data = new byte[ 100_000 ];
+        new Random( 313 ).nextBytes( data );
+
+        var executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            Future<?> writer = executor.submit( () -> {
+                var w = p.getWriteChannel();
+                var source = ByteBuffer.allocateDirect( 4096 );
+                int position = 0;
+                while ( position < data.length )
+                {
+                    int count = Math.min( data.length - position, source.capacity() );
+                    source.clear();
+                    source.put( data, position, count );
+                    source.flip();
+                    while ( source.hasRemaining() )
+                        w.write( source );
+                    position += count;
+                }
+                return null;
+            } );
+
+            var received = new byte[ data.length ];
+            var target = ByteBuffer.allocateDirect( 3000 );
+            var r = p.getReadChannel();
+            int position = 0;
+            while ( position < data.length )
+            {
+                target.clear();
+                r.read( target );
+                target.flip();
+                int count = target.remaining();
+                target.get( received, position, count );
+                position += count;
+            }
+
+            writer.get();
+
+            assertArrayEquals( data, received );
+        }
+        finally
+        {
+            executor.shutdown();
+            p.close();
+        }
+    }
+
     @Test
     public void testPipeNio() throws IOException
     {
@@ -34,4 +150,88 @@ public class PipeTest
     {
         singleChar( new SimplePipe() );
     }
+    @Test
+    public void testPipeRing() throws IOException
+    {
+        singleChar( new RingPipe() );
+    }
+
+    @Test
+    public void testBulkNio() throws Exception
+    {
+        bulk( new NioPipe() );
+    }
+    @Test
+    public void testBulkRing() throws Exception
+    {
+        // Small buffer for lots of wrap-arounds.
+        bulk( new RingPipe( 1000 ) );
+    }
+
+    @Test
+    public void testChannelNio() throws Exception
+    {
+        bulkChannel( new NioPipe() );
+    }
+    @Test
+    public void testChannelRing() throws Exception
+    {
+        bulkChannel( new RingPipe( 1000 ) );
+    }
+    @Test
+    public void testChannelDefault() throws Exception
+    {
+        bulkChannel( new SimplePipe() );
+    }
+
+    @Test
+    public void testRingClose() throws IOException
+    {
+        var p = new RingPipe( 10 );
+        p.getWriteEnd().write( new byte[] { 1, 2, 3 } );
+        p.close();
+
+        try
+        {
+            p.getWriteEnd().write( 4 );
+            fail();
+        }
+        catch ( IOException expected )
+        {
+        }
+
+        // Data written before the close is still delivered.
+        var buffer = new byte[ 10 ];
+        assertEquals( 3, p.getReadEnd().read( buffer ) );
+        assertEquals( -1, p.getReadEnd().read( buffer ) );
+        assertEquals( -1, p.getReadEnd().read() );
+    }
+
+    @Test
+    public void testRingChannelClose() throws IOException
+    {
+        var p = new RingPipe( 10 );
+        p.getWriteChannel().write( ByteBuffer.wrap( new byte[] { 1, 2, 3 } ) );
+        p.close();
+
+        assertFalse( p.getWriteChannel().isOpen() );
+        assertFalse( p.getReadChannel().isOpen() );
+
+        try
+        {
+            p.getWriteChannel().write( ByteBuffer.wrap( new byte[] { 4 } ) );
+            fail();
+        }
+        catch ( ClosedChannelException expected )
+        {
+        }
+
+        // Data written before the close is still delivered.
+        var buffer = ByteBuffer.allocate( 10 );
+        assertEquals( 3, p.getReadChannel().read( buffer ) );
+        assertEquals( -1, p.getReadChannel().read( buffer ) );
+        assertArrayEquals(
+                new byte[] { 1, 2, 3 },
+                Arrays.copyOf( buffer.array(), buffer.position() ) );
+    }
 }
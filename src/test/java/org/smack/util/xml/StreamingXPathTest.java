@@ -0,0 +1,169 @@
+package org.smack.util.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class StreamingXPathTest
+{
+    private static final String DOC =
+            "<r xmlns:x='urn:x'>" +
+            "<a id='1'><b>one</b><b>two</b></a>" +
+            "<a id='2' x:k='v'><b>three<c>!</c></b><![CDATA[<d>]]></a>" +
+            "<x:a><b>four</b></x:a>" +
+            "</r>";
+
+    private static List<String> eval( String xpath ) throws Exception
+    {
+        try ( var stream = XmlUtil.streamXPath(
+                new ByteArrayInputStream( DOC.getBytes() ),
+                xpath ) )
+        {
+            return stream.collect( Collectors.toList() );
+        }
+    }
+
+    @Test
+    public void testPaths() throws Exception
+    {
+        assertEquals( List.of( "one", "two", "three!" ), eval( "/r/a/b" ) );
+        assertEquals( List.of( "one", "two", "three!", "four" ), eval( "/r/*/b" ) );
+        assertEquals( List.of( "four" ), eval( "/r/x:a/b" ) );
+        assertEquals( List.of( "1", "2" ), eval( "/r/a/@id" ) );
+        assertEquals( List.of( "v" ), eval( "/r/a/@x:k" ) );
+        assertEquals( List.of( "three!<d>" ), eval( "/r/a[2]" ) );
+        assertEquals( List.of(), eval( "/a" ) );
+        assertEquals( List.of(), eval( "/r/a/@k" ) );
+    }
+
+    @Test
+    public void testUndeclaredPrefix() throws Exception
+    {
+        // An undeclared prefix matches neither unqualified nor
+        // qualified names.
+        assertEquals( List.of(), eval( "/r/undeclared:a/b" ) );
+        assertEquals( List.of(), eval( "/r/a/@undeclared:id" ) );
+        assertEquals( List.of(), eval( "/r/a[@undeclared:id='1']/b" ) );
+    }
+
+    @Test
+    public void testPredicates() throws Exception
+    {
+        assertEquals( List.of( "two" ), eval( "/r/a/b[2]" ) );
+        assertEquals( List.of( "one", "three!" ), eval( "/r/a/b[1]" ) );
+        assertEquals( List.of( "three!" ), eval( "/r/a[@id='2']/b" ) );
+        assertEquals( List.of( "two" ), eval( "/r/a[ @id = \"1\" ]/b[2]" ) );
+        assertEquals( List.of( "2" ), eval( "/r/a[@x:k='v'][1]/@id" ) );
+        assertEquals( List.of( "four" ), eval( "/r/*[3]/b" ) );
+    }
+
+    @Test
+    public void testSyntax()
+    {
+        for ( var c : new String[] { "", "a", "//a", "/a/@b/c", "/a[x]", "/a[@b=c]", "/@a", "/a[0]" } )
+        {
+            try
+            {
+                StreamingXPath.compile( c );
+                fail( c );
+            }
+            catch ( IllegalArgumentException expected )
+            {
+            }
+        }
+    }
+
+    @Test
+    public void testLazy() throws Exception
+    {
+        // A document that is broken after the first matches.
+        InputStream in = new SequenceInputStream(
+                new ByteArrayInputStream( "<r><a>1</a><a>2</a>".getBytes() ),
+                new ByteArrayInputStream( "<a>".getBytes() ) );
+        var in2 = new CheckableInputStream( in );
+
+        try ( var stream = XmlUtil.streamXPath( in2, "/r/a" ) )
+        {
+            var iterator = stream.iterator();
+            assertEquals( "1", iterator.next() );
+            assertEquals( "2", iterator.next() );
+            try
+            {
+                iterator.hasNext();
+                fail();
+            }
+            catch ( UncheckedIOException expected )
+            {
+            }
+        }
+
+        assertTrue( in2.isClosed() );
+    }
+
+    @Test
+    public void testCloseOnFailure() throws Exception
+    {
+        var in = new CheckableInputStream( new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException( "Broken." );
+            }
+        } );
+
+        try
+        {
+            StreamingXPath.compile( "/r" ).evaluate( in );
+            fail();
+        }
+        catch ( XMLStreamException expected )
+        {
+        }
+
+        assertTrue( in.isClosed() );
+    }
+
+    @Test
+    public void testLarge() throws Exception
+    {
+        int count = 100_000;
+
+        var element = "<a n='x'><b>1</b></a>".getBytes();
+        var stream = new SequenceInputStream( Collections.enumeration( List.of(
+                new ByteArrayInputStream( "<r>".getBytes() ),
+                new InputStream()
+                {
+                    private long _position;
+
+                    @Override
+                    public int read()
+                    {
+                        if ( _position == (long)count * element.length )
+                            return -1;
+                        return element[ (int)(_position++ % element.length) ];
+                    }
+                },
+                new ByteArrayInputStream( "</r>".getBytes() ) ) ) );
+
+        assertEquals(
+                count,
+                StreamingXPath.compile( "/r/a[@n='x']/b" )
+                    .evaluate( stream )
+                    .filter( "1"::equals )
+                    .count() );
+    }
+}
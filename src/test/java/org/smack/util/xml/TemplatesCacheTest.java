@@ -0,0 +1,119 @@
+package org.smack.util.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TemplatesCacheTest
+{
+    private static final String STYLESHEET =
+            "<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>" +
+            "<xsl:output method='text'/>" +
+            "<xsl:template match='/'>%s<xsl:value-of select='/a'/></xsl:template>" +
+            "</xsl:stylesheet>";
+
+    private static File write( File file, String content ) throws Exception
+    {
+        Files.write(
+                file.toPath(),
+                content.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+    private static File tempFile() throws Exception
+    {
+        File result = File.createTempFile(
+                TemplatesCacheTest.class.getSimpleName(),
+                null );
+        result.deleteOnExit();
+        return result;
+    }
+
+    @Test
+    public void testFile() throws Exception
+    {
+        var cache = new TemplatesCache( 8 );
+
+        File xsl = write( tempFile(), String.format( STYLESHEET, "1:" ) );
+
+        var first = cache.get( xsl );
+        assertSame( first, cache.get( xsl ) );
+
+        // Modification is recognized.
+        write( xsl, String.format( STYLESHEET, "22:" ) );
+        assertTrue( xsl.setLastModified( xsl.lastModified() + 2000 ) );
+
+        var second = cache.get( xsl );
+        assertNotSame( first, second );
+        assertSame( second, cache.get( xsl ) );
+        assertEquals( 1, cache.size() );
+    }
+
+    @Test
+    public void testContent() throws Exception
+    {
+        var cache = new TemplatesCache( 2 );
+
+        byte[] one = String.format( STYLESHEET, "1" ).getBytes();
+        byte[] two = String.format( STYLESHEET, "2" ).getBytes();
+        byte[] three = String.format( STYLESHEET, "3" ).getBytes();
+
+        var first = cache.get( one, null );
+        assertSame( first, cache.get( one.clone(), null ) );
+        assertNotSame( first, cache.get( one, "file:/x.xsl" ) );
+        assertNotSame( first, cache.get( two, null ) );
+        assertEquals( 2, cache.size() );
+
+        // Evicts the least recently used.
+        cache.get( three, null );
+        assertEquals( 2, cache.size() );
+        assertNotSame( first, cache.get( one, null ) );
+    }
+
+    @Test
+    public void testTransform() throws Exception
+    {
+        File xsl = write( tempFile(), String.format( STYLESHEET, "1:" ) );
+        File xml = write( tempFile(), "<a>313</a>" );
+
+        assertEquals(
+                "1:313",
+                XmlUtil.transform( xsl, xml, Collections.emptyMap() ) );
+
+        write( xsl, String.format( STYLESHEET, "22:" ) );
+        assertTrue( xsl.setLastModified( xsl.lastModified() + 2000 ) );
+
+        assertEquals(
+                "22:313",
+                XmlUtil.transform( xsl, xml, Collections.emptyMap() ) );
+    }
+
+    @Test
+    public void testTransformStreaming() throws Exception
+    {
+        File xsl = write( tempFile(), String.format( STYLESHEET, "1:" ) );
+        File xml = write( tempFile(), "<!DOCTYPE a SYSTEM 'none.dtd'><a>313</a>" );
+
+        var target = new ByteArrayOutputStream();
+        XmlUtil.transform( xsl, xml, Collections.emptyMap(), target );
+        assertEquals( "1:313", target.toString() );
+
+        target.reset();
+        XmlUtil.transform(
+                new FileInputStream( xsl ),
+                new FileInputStream( xml ),
+                Collections.emptyMap(),
+                target );
+        assertEquals( "1:313", target.toString() );
+    }
+}
@@ -0,0 +1,76 @@
+package org.smack.util.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+public class XPathQueryTest
+{
+    @Test
+    public void testDocuments() throws Exception
+    {
+        var query = new XPathQuery(
+                "/vector/@android:height",
+                "/vector/path/@android:fillColor",
+                "/vector/@micbinz" );
+
+        assertEquals( 3, query.size() );
+
+        assertEquals(
+                List.of( "24dp", "#FF000000", "binz" ),
+                query.evaluate( getClass().getResourceAsStream( "ic_car.xml" ) ) );
+        assertEquals(
+                List.of( "24dp", "#FF000000", "" ),
+                query.evaluate( getClass().getResourceAsStream( "ic_menu_help.xml" ) ) );
+        assertEquals(
+                List.of( "24dp", "#FF000000", "binz" ),
+                query.evaluate( getClass().getResourceAsStream( "ic_car.xml" ) ) );
+    }
+
+    @Test
+    public void testNamespaces() throws Exception
+    {
+        var query = new XPathQuery( "/a/x:b" );
+
+        // Same prefix, different namespaces.
+        var one = "<a xmlns:x='urn:one'><x:b>1</x:b></a>";
+        var two = "<a xmlns:x='urn:two'><x:b>2</x:b><b>3</b></a>";
+
+        assertEquals(
+                List.of( List.of( "1" ) ),
+                query.evaluateNodes( new ByteArrayInputStream( one.getBytes() ) ) );
+        assertEquals(
+                List.of( List.of( "2" ) ),
+                query.evaluateNodes( new ByteArrayInputStream( two.getBytes() ) ) );
+        assertEquals(
+                List.of( List.of( "1" ) ),
+                query.evaluateNodes( new ByteArrayInputStream( one.getBytes() ) ) );
+    }
+
+    /**
+     * More namespace declaration sets than cached ones.  Evicted
+     * expressions are compiled again.
+     */
+    @Test
+    public void testManyNamespaces() throws Exception
+    {
+        var query = new XPathQuery( "/a/x:b" );
+
+        for ( int round = 0 ; round < 2 ; round++ )
+        {
+            for ( int i = 0 ; i < 40 ; i++ )
+            {
+                var document = String.format(
+                        "<a xmlns:x='urn:%d'><x:b>%d</x:b></a>", i, i );
+
+                assertEquals(
+                        List.of( String.valueOf( i ) ),
+                        query.evaluate(
+                                new ByteArrayInputStream( document.getBytes() ) ) );
+            }
+        }
+    }
+}
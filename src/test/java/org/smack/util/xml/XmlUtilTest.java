@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -14,9 +15,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
 import org.junit.Test;
 import org.smack.util.FileUtil;
 import org.smack.util.StringUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
 
 public class XmlUtilTest
 {
@@ -281,4 +289,63 @@ public class XmlUtilTest
         assertEquals( "316", list.get( 3 ) );
         assertEquals( "262", list.get( 4 ) );
     }
+
+    /**
+     * The namespaces as found by the xpath namespace axis.
+     */
+    private static NamespaceContextImpl namespacesByXPath( Document doc )
+            throws Exception
+    {
+        NodeList x = (NodeList)XPathFactory.newInstance().newXPath()
+                .evaluate( "//namespace::*", doc, XPathConstants.NODESET );
+
+        var result = new NamespaceContextImpl();
+
+        for ( int i = 0 ; i < x.getLength() ; i++ )
+            result.put( x.item( i ).getLocalName(), x.item( i ).getNodeValue() );
+
+        return result;
+    }
+
+    private static Document parse( InputStream is )
+            throws Exception
+    {
+        try ( is )
+        {
+            var factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware( true );
+            return factory.newDocumentBuilder().parse( is );
+        }
+    }
+
+    @Test
+    public void testGetNamespaces() throws Exception
+    {
+        var documents = List.of(
+                getClass().getResourceAsStream( "ic_car.xml" ),
+                getClass().getResourceAsStream( "nodeTest.xml" ),
+                new ByteArrayInputStream( "<a/>".getBytes() ),
+                new ByteArrayInputStream(
+                        "<a xmlns='urn:d' xmlns:p='urn:A'><b xmlns:p='urn:B'/><c/></a>".getBytes() ) );
+
+        for ( var is : documents )
+        {
+            var doc = parse( is );
+            assertEquals( namespacesByXPath( doc ), XmlUtil.getNamespaces( doc ) );
+        }
+    }
+
+    @Test
+    public void testGetNamespacesContent() throws Exception
+    {
+        var doc = parse( new ByteArrayInputStream(
+                "<a xmlns='urn:d' xmlns:p='urn:A'><b xmlns:p='urn:B'/><c/></a>".getBytes() ) );
+
+        var expected = new NamespaceContextImpl();
+        expected.put( "xmlns", "urn:d" );
+        expected.put( "p", "urn:B" );
+        expected.put( "xml", XMLConstants.XML_NS_URI );
+
+        assertEquals( expected, XmlUtil.getNamespaces( doc ) );
+    }
 }